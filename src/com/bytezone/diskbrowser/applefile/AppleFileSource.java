@@ -1,9 +1,15 @@
 package com.bytezone.diskbrowser.applefile;
 
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.disk.SectorChannel;
 import com.bytezone.diskbrowser.gui.DataSource;
 
 // -----------------------------------------------------------------------------------//
@@ -43,4 +49,52 @@ public interface AppleFileSource
   // ---------------------------------------------------------------------------------//
   public boolean contains (DiskAddress diskAddress);
   // ---------------------------------------------------------------------------------//
+
+  /*
+   * Returns the sectors that contains () matches. Unlike getSectors () this leaves out
+   * the catalog sector that describes the object.
+   */
+  // ---------------------------------------------------------------------------------//
+  public List<DiskAddress> getOwnedSectors ();
+  // ---------------------------------------------------------------------------------//
+
+  /*
+   * Returns a read-only channel over the object's contents. Sectors are read as the
+   * channel is read, so a large file can be scanned or extracted without building
+   * its buffer. File entries override this to follow their own block map and EOF.
+   */
+  // ---------------------------------------------------------------------------------//
+  public default SeekableByteChannel getChannel ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return new SectorChannel (getFormattedDisk ().getDisk (), getOwnedSectors ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public default InputStream getInputStream ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return Channels.newInputStream (getChannel ());
+  }
+
+  /*
+   * Returns true if the object holds other files, such as a ProDOS subdirectory.
+   */
+  // ---------------------------------------------------------------------------------//
+  public default boolean isDirectory ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return false;
+  }
+
+  /*
+   * Returns the catalog fields that the file system keeps for the object, such as its
+   * file type and dates, keyed by name. Dates are FileTimes.
+   */
+  // ---------------------------------------------------------------------------------//
+  public default Map<String, Object> getAttributes ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return Collections.emptyMap ();
+  }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.bytezone.diskbrowser.applefile;
+
+import com.bytezone.diskbrowser.disk.SparseContent;
+import com.bytezone.diskbrowser.disk.SparseContent.Extent;
+import com.bytezone.diskbrowser.utilities.HexFormatter;
+
+// A file whose EOF is mostly holes. The hex dump reads one run of allocated blocks at a
+// time and shows each hole as a single line, so the logical EOF is never allocated.
+// -----------------------------------------------------------------------------------//
+public class SparseFile extends AbstractFile
+// -----------------------------------------------------------------------------------//
+{
+  private static final int MAX_DUMP = 999999;
+
+  private final SparseContent content;
+
+  // ---------------------------------------------------------------------------------//
+  public SparseFile (String name, SparseContent content)
+  // ---------------------------------------------------------------------------------//
+  {
+    super (name, null);
+
+    this.content = content;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getText ()
+  // ---------------------------------------------------------------------------------//
+  {
+    StringBuilder text = new StringBuilder (getHeader ());
+
+    text.append (String.format ("Sparse file%n%n"));
+    text.append (String.format ("EOF ........ %,11d%n", content.length ()));
+    text.append (String.format ("Allocated .. %,11d%n", content.getAllocatedBytes ()));
+    text.append (String.format ("Extents .... %,11d%n%n", content.getExtents ().size ()));
+
+    text.append ("  Offset   Blocks\n");
+    text.append ("--------  -------\n");
+    for (Extent extent : content.getExtents ())
+      text.append (String.format ("%08X  %,7d%n", extent.getOffset (),
+          extent.getTotalBlocks ()));
+
+    return text.toString ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getAssembler ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return "Sparse file - no assembler listing";
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getHexDump ()
+  // ---------------------------------------------------------------------------------//
+  {
+    StringBuilder text = new StringBuilder ();
+    int position = 0;
+    int dumped = 0;
+
+    for (Extent extent : content.getExtents ())
+    {
+      int offset = extent.getOffset ();
+      if (offset >= content.length ())
+        break;
+
+      if (offset > position)
+        text.append (hole (position, offset));
+
+      if (dumped >= MAX_DUMP)
+      {
+        System.out.println ("**** truncating hex dump");
+        return text.toString ();
+      }
+
+      int length = Math.min (extent.getLength (), content.length () - offset);
+      length = Math.min (length, MAX_DUMP - dumped);
+
+      text.append (HexFormatter.format (content.read (extent), 0, length, position == 0,
+          offset));
+      text.append ("\n");
+
+      dumped += length;
+      position = offset + extent.getLength ();
+    }
+
+    if (position < content.length ())
+      text.append (hole (position, content.length ()));
+
+    return text.toString ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private String hole (int from, int to)
+  // ---------------------------------------------------------------------------------//
+  {
+    return String.format ("%n%05X - %05X : %,d zero bytes%n%n", from, to - 1, to - from);
+  }
+}
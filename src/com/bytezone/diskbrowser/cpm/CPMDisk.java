@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.cpm;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -13,6 +14,7 @@ import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.SectorType;
 import com.bytezone.diskbrowser.gui.DataSource;
+import com.bytezone.diskbrowser.utilities.Utility;
 
 // -----------------------------------------------------------------------------------//
 public class CPMDisk extends AbstractFormattedDisk
@@ -30,6 +32,8 @@ public class CPMDisk extends AbstractFormattedDisk
   public final SectorType ovrSector = new SectorType ("OVR", Color.magenta);
   public final SectorType macSector = new SectorType ("MAC", Color.green);
 
+  private static final byte[] VERSION_KEY = "DIR ERA TYPESAVEREN USER".getBytes ();
+
   private int version;      // http://www.seasip.info/Cpm/format22.html
   //                        // http://www.seasip.info/Cpm/format31.html
   private final DefaultMutableTreeNode volumeNode;
@@ -55,11 +59,10 @@ public class CPMDisk extends AbstractFormattedDisk
     // search for the version string
     for (int i = 8; i >= 4; i -= 2)
     {
-      byte[] buffer = disk.readBlock (0, i);
-      String text = new String (buffer, 16, 24);
-      if ("DIR ERA TYPESAVEREN USER".equals (text))
+      ByteBuffer buffer = disk.readBlockView (0, i);
+      if (isVersionSector (buffer))
       {
-        version = buffer[41] & 0xFF;
+        version = buffer.get (41) & 0xFF;
         break;
       }
     }
@@ -73,9 +76,9 @@ public class CPMDisk extends AbstractFormattedDisk
       DiskAddress da = disk.getDiskAddress (3, sector);
 
       sectorTypes[da.getBlockNo ()] = catalogSector;
-      byte[] buffer = disk.readBlock (da);
-      int b1 = buffer[0] & 0xFF;
-      int b2 = buffer[1] & 0xFF;
+      ByteBuffer buffer = disk.readBlockView (da);
+      int b1 = buffer.get (0) & 0xFF;
+      int b2 = buffer.get (1) & 0xFF;
       if (b1 == 0xE5)
         continue;
       if (b1 > 31)
@@ -83,10 +86,10 @@ public class CPMDisk extends AbstractFormattedDisk
       if (b2 < 32 || (b2 > 126 && b2 != 0xE5))
         break;
 
-      for (int i = 0; i < buffer.length; i += 32)
+      for (int i = 0; i < buffer.limit (); i += 32)
       {
-        b1 = buffer[i] & 0xFF;
-        b2 = buffer[i + 1] & 0xFF;
+        b1 = buffer.get (i) & 0xFF;
+        b2 = buffer.get (i + 1) & 0xFF;
         if (b1 == 0xE5)
           break;
         if (b2 < 32 || (b2 > 126 && b2 != 0xE5))
@@ -101,7 +104,7 @@ public class CPMDisk extends AbstractFormattedDisk
         DirectoryEntry parent = findParent (entry);
         if (parent == null)
         {
-          fileEntries.add (entry);
+          addFile (entry);
           DefaultMutableTreeNode node = new DefaultMutableTreeNode (entry);
           volumeNode.add (node);
           node.setAllowsChildren (false);
@@ -205,15 +208,24 @@ public class CPMDisk extends AbstractFormattedDisk
   public static boolean isCorrectFormat (AppleDisk disk)
   // ---------------------------------------------------------------------------------//
   {
-    disk.setInterleave (3);
+    if (!checkFormat (disk, 3))
+      return false;
+
+    if (disk.getInterleave () != 3)           // only switch once the format is known
+      disk.setInterleave (3);
+    return true;
+  }
 
+  // ---------------------------------------------------------------------------------//
+  private static boolean checkFormat (AppleDisk disk, int interleave)
+  // ---------------------------------------------------------------------------------//
+  {
     for (int i = 8; i >= 4; i -= 2)
     {
-      byte[] buffer = disk.readBlock (0, i);
-      String text = new String (buffer, 16, 24);
-      if ("DIR ERA TYPESAVEREN USER".equals (text))
+      ByteBuffer buffer = disk.readBlockView (disk.getDiskAddress (0, i), interleave);
+      if (isVersionSector (buffer))
       {
-        int version = buffer[41] & 0xFF;
+        int version = buffer.get (41) & 0xFF;
         System.out.printf ("CPM version %d%n", version);
         return true;
       }
@@ -221,15 +233,15 @@ public class CPMDisk extends AbstractFormattedDisk
 
     for (int sector = 0; sector < 8; sector++)
     {
-      byte[] buffer = disk.readBlock (3, sector);
+      ByteBuffer buffer = disk.readBlockView (disk.getDiskAddress (3, sector), interleave);
 
       // check if entire sector is empty (everything == 0xE5)
       if (bufferContainsAll (buffer, (byte) 0xE5))
         break;
 
-      for (int i = 0; i < buffer.length; i += 32)
+      for (int i = 0; i < buffer.limit (); i += 32)
       {
-        int val = buffer[i] & 0xFF;
+        int val = buffer.get (i) & 0xFF;
         if (val == 0xE5)
           break;
 
@@ -238,7 +250,7 @@ public class CPMDisk extends AbstractFormattedDisk
 
         for (int j = 1; j <= 8; j++)
         {
-          val = buffer[i + j] & 0xFF;
+          val = buffer.get (i + j) & 0xFF;
           if (val < 32 || (val > 126 && val != 0xE5))
             return false;
         }
@@ -249,15 +261,22 @@ public class CPMDisk extends AbstractFormattedDisk
   }
 
   // ---------------------------------------------------------------------------------//
-  private static boolean bufferContainsAll (byte[] buffer, byte value)
+  private static boolean bufferContainsAll (ByteBuffer buffer, byte value)
   // ---------------------------------------------------------------------------------//
   {
-    for (byte b : buffer)
-      if (b != value)
+    for (int i = 0; i < buffer.limit (); i++)
+      if (buffer.get (i) != value)
         return false;
     return true;
   }
 
+  // ---------------------------------------------------------------------------------//
+  private static boolean isVersionSector (ByteBuffer buffer)
+  // ---------------------------------------------------------------------------------//
+  {
+    return Utility.matches (buffer, 16, VERSION_KEY);
+  }
+
   // ---------------------------------------------------------------------------------//
   //  @Override
   //  public String toString ()
@@ -1,17 +1,21 @@
 package com.bytezone.diskbrowser.cpm;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
 import com.bytezone.diskbrowser.applefile.CPMTextFile;
 import com.bytezone.diskbrowser.applefile.DefaultAppleFile;
-import com.bytezone.diskbrowser.disk.AppleDiskAddress;
+import com.bytezone.diskbrowser.disk.BlockList;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.disk.SectorChannel;
 import com.bytezone.diskbrowser.gui.DataSource;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
+import com.bytezone.diskbrowser.utilities.Utility;
 
 // File Control Block (FCB)
 // -----------------------------------------------------------------------------------//
@@ -32,36 +36,36 @@ class DirectoryEntry implements AppleFileSource
   private final byte[] blockList = new byte[16];      // allocation blocks used
 
   private final List<DirectoryEntry> entries = new ArrayList<> ();
-  private final List<DiskAddress> blocks = new ArrayList<> ();
+  private final BlockList blocks = new BlockList ();
   private final boolean readOnly;
   private final boolean systemFile;
 
   // ---------------------------------------------------------------------------------//
-  DirectoryEntry (CPMDisk parent, byte[] buffer, int offset)
+  DirectoryEntry (CPMDisk parent, ByteBuffer buffer, int offset)
   // ---------------------------------------------------------------------------------//
   {
     this.parent = parent;
     disk = parent.getDisk ();
 
     // hi-bits of type are used for flags
-    readOnly = (buffer[offset + 9] & 0x80) != 0;
-    systemFile = (buffer[offset + 10] & 0x80) != 0;
+    readOnly = (buffer.get (offset + 9) & 0x80) != 0;
+    systemFile = (buffer.get (offset + 10) & 0x80) != 0;
 
     byte[] typeBuffer = new byte[3];
-    typeBuffer[0] = (byte) (buffer[offset + 9] & 0x7F);
-    typeBuffer[1] = (byte) (buffer[offset + 10] & 0x7F);
-    typeBuffer[2] = (byte) (buffer[offset + 11] & 0x7F);
+    typeBuffer[0] = (byte) (buffer.get (offset + 9) & 0x7F);
+    typeBuffer[1] = (byte) (buffer.get (offset + 10) & 0x7F);
+    typeBuffer[2] = (byte) (buffer.get (offset + 11) & 0x7F);
     type = new String (typeBuffer).trim ();
 
-    userNumber = buffer[offset] & 0xFF;
-    name = new String (buffer, offset + 1, 8).trim ();
-    extent = buffer[offset + 12] & 0xFF;
-    s2 = buffer[offset + 13] & 0xFF;
-    s1 = buffer[offset + 14] & 0xFF;
-    recordsUsed = buffer[offset + 15] & 0xFF;
-    System.arraycopy (buffer, offset + 16, blockList, 0, 16);
+    userNumber = buffer.get (offset) & 0xFF;
+    name = new String (Utility.getBytes (buffer, offset + 1, 8)).trim ();
+    extent = buffer.get (offset + 12) & 0xFF;
+    s2 = buffer.get (offset + 13) & 0xFF;
+    s1 = buffer.get (offset + 14) & 0xFF;
+    recordsUsed = buffer.get (offset + 15) & 0xFF;
+    for (int i = 0; i < blockList.length; i++)
+      blockList[i] = buffer.get (offset + 16 + i);
 
-    Disk disk = parent.getDisk ();
     for (byte b : blockList)
     {
       if (b == 0)
@@ -74,8 +78,7 @@ class DirectoryEntry implements AppleFileSource
       else
         blockNumber = (b & 0x7F) * 4;
 
-      for (int i = 0; i < 4; i++)
-        blocks.add (new AppleDiskAddress (disk, blockNumber + i));
+      blocks.addRange (blockNumber, blockNumber + 3);
     }
   }
 
@@ -100,27 +103,30 @@ class DirectoryEntry implements AppleFileSource
   {
     entries.add (entry);
 
-    Disk disk = parent.getDisk ();
     for (byte b : entry.blockList)
     {
       if (b == 0)
         break;
 
       int blockNumber = b * 4 + 48;
-      for (int i = 0; i < 4; i++)
-        blocks.add (new AppleDiskAddress (disk, blockNumber + i));
+      blocks.addRange (blockNumber, blockNumber + 3);
     }
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public List<DiskAddress> getOwnedSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return blocks.getDiskAddresses (disk);
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public boolean contains (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    for (DiskAddress sector : blocks)
-      if (sector.matches (da))
-        return true;
-    return false;
+    return blocks.contains (da);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -188,7 +194,7 @@ class DirectoryEntry implements AppleFileSource
     if (appleFile != null)
       return appleFile;
 
-    byte[] buffer = disk.readBlocks (blocks);
+    byte[] buffer = disk.readBlocks (blocks.getDiskAddresses (disk));
 
     if (buffer.length == 0)
     {
@@ -196,8 +202,7 @@ class DirectoryEntry implements AppleFileSource
       return appleFile;
     }
 
-    DirectoryEntry entry = recordsUsed == 0x80 ? entries.get (entries.size () - 1) : this;
-    int len = (entry.extent * 128 + entry.recordsUsed) * 128;
+    int len = getLength ();
     if (len > buffer.length)
     {
       System.out.println ("too big");       // see tdbt12d1.sdk
@@ -228,12 +233,29 @@ class DirectoryEntry implements AppleFileSource
     return appleFile;
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public SeekableByteChannel getChannel ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return new SectorChannel (disk, blocks.getDiskAddresses (disk), getLength ());
+  }
+
+  // the last extent holds the file's record count
+  // ---------------------------------------------------------------------------------//
+  private int getLength ()
+  // ---------------------------------------------------------------------------------//
+  {
+    DirectoryEntry entry = recordsUsed == 0x80 ? entries.get (entries.size () - 1) : this;
+    return (entry.extent * 128 + entry.recordsUsed) * 128;
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public List<DiskAddress> getSectors ()
   // ---------------------------------------------------------------------------------//
   {
-    return blocks;
+    return blocks.getDiskAddresses (disk);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -8,8 +8,11 @@ import java.awt.event.ActionListener;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.JTree;
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -34,7 +37,7 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   protected Path originalPath;
 
   protected List<SectorType> sectorTypesList = new ArrayList<> ();
-  protected List<AppleFileSource> fileEntries = new ArrayList<> ();
+  protected List<AppleFileSource> fileEntries = new ArrayList<> ();   // use addFile ()
 
   public SectorType[] sectorTypes;
 
@@ -51,6 +54,14 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   protected BitSet freeBlocks;
   protected BitSet usedBlocks; // still to be populated - currently using stillAvailable ()
 
+  private int[] blockOwner;           // index into fileEntries + 1, or 0 if not owned
+  private BitSet crossLinkedBlocks;   // blocks owned by more than one entry
+  private int totalOwners;            // entries in the index when it was built
+  private boolean ownerIndexComplete; // false if built before the catalog was read
+
+  private final Map<String, List<AppleFileSource>> nameIndex = new HashMap<> ();
+  private final Map<String, List<AppleFileSource>> baseNameIndex = new HashMap<> ();
+
   // ---------------------------------------------------------------------------------//
   public AbstractFormattedDisk (Disk disk)
   // ---------------------------------------------------------------------------------//
@@ -112,8 +123,10 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   {
     sectorTypes = new SectorType[disk.getTotalBlocks ()];
 
+    // a block that hasn't been loaded yet is shown as used rather than loading it
     for (DiskAddress da : disk)
-      sectorTypes[da.getBlockNo ()] = disk.isBlockEmpty (da) ? emptySector : usedSector;
+      sectorTypes[da.getBlockNo ()] =
+          disk.isBlockLoaded (da) && disk.isBlockEmpty (da) ? emptySector : usedSector;
 
     setGridLayout ();
   }
@@ -285,18 +298,111 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   public List<AppleFileSource> getCatalogList ()
   // ---------------------------------------------------------------------------------//
   {
+    completeCatalog ();
     return fileEntries;
   }
 
+  // Formats that only read part of their catalog when the disk is opened must read the
+  // rest here. Anything that needs every file entry calls this first.
+  // ---------------------------------------------------------------------------------//
+  protected void completeCatalog ()
+  // ---------------------------------------------------------------------------------//
+  {
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isCatalogComplete ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return true;
+  }
+
+  // The number of entries at the start of fileEntries whose sectors are already known.
+  // Only formats that read their catalog in the background have fewer than all.
+  // ---------------------------------------------------------------------------------//
+  protected int getResolvedEntries ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return fileEntries.size ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void loadPath (String uniqueName)
+  // ---------------------------------------------------------------------------------//
+  {
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public AppleFileSource getFile (String uniqueName)
   // ---------------------------------------------------------------------------------//
   {
-    for (AppleFileSource afs : fileEntries)
-      if (afs.getUniqueName ().equals (uniqueName))
-        return afs;
-    return null;
+    List<AppleFileSource> files = getFiles (uniqueName);
+    return files.isEmpty () ? null : files.get (0);
+  }
+
+  // Returns the entries with the unique name. Deleted DOS files can share a name, so
+  // there may be more than one.
+  // ---------------------------------------------------------------------------------//
+  protected synchronized List<AppleFileSource> getFiles (String uniqueName)
+  // ---------------------------------------------------------------------------------//
+  {
+    return nameIndex.getOrDefault (uniqueName, Collections.emptyList ());
+  }
+
+  // Returns the entries that share a base name, such as the PIC, PIC.AUX and PIC.BIN
+  // parts of a double hi-res picture.
+  // ---------------------------------------------------------------------------------//
+  protected synchronized List<AppleFileSource> getFilesByBaseName (String baseName)
+  // ---------------------------------------------------------------------------------//
+  {
+    return baseNameIndex.getOrDefault (baseName, Collections.emptyList ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  protected void addFile (AppleFileSource file)
+  // ---------------------------------------------------------------------------------//
+  {
+    addFiles (fileEntries.size (), Collections.singletonList (file));
+  }
+
+  // Every entry goes into fileEntries through here, so the name indexes always match.
+  // ---------------------------------------------------------------------------------//
+  protected synchronized void addFiles (int position,
+      List<? extends AppleFileSource> entries)
+  // ---------------------------------------------------------------------------------//
+  {
+    fileEntries.addAll (position, entries);
+
+    for (AppleFileSource afs : entries)
+    {
+      String uniqueName = afs.getUniqueName ();
+      nameIndex.computeIfAbsent (uniqueName, k -> new ArrayList<> (1)).add (afs);
+
+      // PIC.BIN is also its own base name, in case there is a PIC.BIN.AUX
+      String baseName = getBaseName (uniqueName);
+      addBaseName (baseName, afs);
+      if (!baseName.equals (uniqueName))
+        addBaseName (uniqueName, afs);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void addBaseName (String baseName, AppleFileSource afs)
+  // ---------------------------------------------------------------------------------//
+  {
+    baseNameIndex.computeIfAbsent (baseName, k -> new ArrayList<> (1)).add (afs);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  protected static String getBaseName (String uniqueName)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (uniqueName.endsWith (".AUX") || uniqueName.endsWith (".BIN"))
+      return uniqueName.substring (0, uniqueName.length () - 4);
+    return uniqueName;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -397,7 +503,7 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
     if (da.isZero () && bootSector != null)
       return bootSector;
 
-    SectorType sectorType = sectorTypes[da.getBlockNo ()];
+    SectorType sectorType = getSectorType (da);
     byte[] buffer = disk.readBlock (da);
 
     //    String address = String.format ("%02X %02X", da.getTrackNo (), da.getSectorNo ());
@@ -431,11 +537,79 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   public String getSectorFilename (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    for (AppleFileSource entry : fileEntries)
-      if (entry.contains (da))
-        return (entry).getUniqueName ();
+    AppleFileSource owner = getSectorOwner (da);
+    return owner == null ? "" : owner.getUniqueName ();
+  }
 
-    return "";
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public synchronized boolean isSectorCrossLinked (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    buildOwnerIndex ();
+    return da != null && crossLinkedBlocks.get (da.getBlockNo ());
+  }
+
+  // Returns the first entry in fileEntries that contains the sector, the same one that
+  // searching the entries would find.
+  // ---------------------------------------------------------------------------------//
+  protected synchronized AppleFileSource getSectorOwner (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    int[] owners = buildOwnerIndex ();
+    if (da == null)
+      return null;
+
+    int block = da.getBlockNo ();
+    if (block < 0 || block >= owners.length || owners[block] == 0)
+      return null;
+
+    return fileEntries.get (owners[block] - 1);
+  }
+
+  // The index is built the first time it is needed, and again if more entries have
+  // been added since. This never reads the rest of the catalog, because it is called
+  // on the event thread. Until the catalog is complete the index only holds the
+  // entries resolved so far, and it is rebuilt once the catalog has been read.
+  // ---------------------------------------------------------------------------------//
+  protected synchronized int[] buildOwnerIndex ()
+  // ---------------------------------------------------------------------------------//
+  {
+    boolean complete = isCatalogComplete ();
+    int total = complete ? fileEntries.size () : getResolvedEntries ();
+    if (blockOwner != null && ownerIndexComplete == complete
+        && (!complete || totalOwners == total))
+      return blockOwner;
+
+    int[] owners = new int[disk.getTotalBlocks ()];
+    crossLinkedBlocks = new BitSet (owners.length);
+    totalOwners = total;
+    ownerIndexComplete = complete;
+
+    for (int i = 0; i < totalOwners; i++)
+    {
+      List<DiskAddress> sectors = fileEntries.get (i).getOwnedSectors ();
+      if (sectors == null)
+        continue;
+
+      for (DiskAddress da : sectors)
+      {
+        if (da == null)
+          continue;
+
+        int block = da.getBlockNo ();
+        if (block < 0 || block >= owners.length)
+          continue;
+
+        if (owners[block] == 0)
+          owners[block] = i + 1;
+        else if (owners[block] != i + 1)
+          crossLinkedBlocks.set (block);
+      }
+    }
+
+    blockOwner = owners;
+    return owners;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -536,6 +710,7 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   }
 
   // ---------------------------------------------------------------------------------//
+  @Override
   public void addActionListener (ActionListener actionListener)
   // ---------------------------------------------------------------------------------//
   {
@@ -543,6 +718,7 @@ public abstract class AbstractFormattedDisk implements FormattedDisk
   }
 
   // ---------------------------------------------------------------------------------//
+  @Override
   public void removeActionListener (ActionListener actionListener)
   // ---------------------------------------------------------------------------------//
   {
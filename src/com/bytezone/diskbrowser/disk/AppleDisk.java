@@ -3,11 +3,17 @@ package com.bytezone.diskbrowser.disk;
 import java.awt.AWTEventMulticaster;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.zip.CRC32;
@@ -18,6 +24,7 @@ import com.bytezone.diskbrowser.nib.NibFile;
 import com.bytezone.diskbrowser.nib.V2dFile;
 import com.bytezone.diskbrowser.nib.WozFile;
 import com.bytezone.diskbrowser.utilities.FileFormatException;
+import com.bytezone.diskbrowser.utilities.Utility;
 
 // -----------------------------------------------------------------------------------//
 public class AppleDisk implements Disk
@@ -26,9 +33,16 @@ public class AppleDisk implements Disk
   private static final int MAX_INTERLEAVE = 3;
   private static final int SECTOR_SIZE = 256;
   private static final int BLOCK_SIZE = 512;
+  private static final int MAPPED_THRESHOLD = 0x100000;   // map images of 1MB or more
 
   public final File file;
-  private final byte[] diskBuffer;        // contains the disk contents in memory
+  private ByteBuffer diskBuffer;          // disk contents - in memory or memory-mapped
+  private final SectorOverlay overlay = new SectorOverlay ();   // sectors written
+  private ByteBuffer image;               // whole file, null when decoded from nibbles
+  private ByteBuffer source;              // the WOZ or V2D file the sectors came from
+  private String sourceSuffix;
+  private ImageLoader loader;             // fills in the image on demand, or null
+  private int skip;                       // offset of the disk in the image
 
   private final int tracks;               // usually 35 for floppy disks
   private int sectors;                    // 8 or 16 (or 32 for unidos)
@@ -77,10 +91,12 @@ public class AppleDisk implements Disk
   //         DFB     06,04,02,15     ;12->06,13->04,14->02,15->15
 
   private boolean[] hasData;
+  private BitSet checked;                 // blocks in hasData that are valid, or null
   private byte emptyByte = 0;
 
   private ActionListener actionListenerList;
-  private List<DiskAddress> blockList;
+  private DiskAddress[] addresses;        // one per block, shared by all callers
+  private List<DiskAddress> blockList;    // the same addresses, for iterator ()
 
   private WozFile wozFile;
 
@@ -98,17 +114,53 @@ public class AppleDisk implements Disk
       throws FileFormatException
   // ---------------------------------------------------------------------------------//
   {
-    assert (file.exists ()) : "No such path :" + file.getAbsolutePath ();
-    assert (!file.isDirectory ()) : "File is directory :" + file.getAbsolutePath ();
-    assert (file.length () <= Integer.MAX_VALUE) : "File too large";
-    assert (file.length () != 0) : "File empty";
+    this (file, readImage (file), tracks, sectors, skip);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public AppleDisk (String name, byte[] buffer, int tracks, int sectors)
+      throws FileFormatException
+  // ---------------------------------------------------------------------------------//
+  {
+    this (new File (name), ByteBuffer.wrap (buffer).asReadOnlyBuffer (), tracks, sectors,
+        0);
+  }
+
+  // Several geometries are usually tried against the same file (16 x 256 for DOS,
+  // 8 x 512 for ProDOS, two 400K halves for UniDOS), so the factory reads the file once
+  // and builds each AppleDisk as a view over that shared image. The image does not have
+  // to come from the file - a compressed disk is inflated in memory, and the file is
+  // then only used as its name.
+  // ---------------------------------------------------------------------------------//
+  public AppleDisk (File file, ByteBuffer image, int tracks, int sectors, int skip)
+      throws FileFormatException
+  // ---------------------------------------------------------------------------------//
+  {
+    this (file, image, null, tracks, sectors, skip);
+  }
+
+  // An image with a loader starts out empty, and each part of it is loaded the first
+  // time it is read.
+  // ---------------------------------------------------------------------------------//
+  public AppleDisk (File file, ByteBuffer image, ImageLoader loader, int tracks,
+      int sectors, int skip) throws FileFormatException
+  // ---------------------------------------------------------------------------------//
+  {
+    assert (image.limit () != 0) : "File empty";
+
+    this.image = image;
+    this.loader = loader;
+
+    if (loader != null)
+      loader.load (0, 0x54);
 
     String fileName = file.getName ();
+    int length = image.limit ();
 
     int pos = fileName.lastIndexOf ('.');
     String suffix = pos > 0 ? fileName.substring (pos + 1) : "";
 
-    byte[] buffer = getPrefix (file);         // HDV could be a 2mg
+    byte[] buffer = getPrefix (image);        // HDV could be a 2mg
     String prefix = new String (buffer, 0, 4);
 
     if ("2mg".equalsIgnoreCase (suffix) || "2IMG".equals (prefix))
@@ -133,7 +185,7 @@ public class AppleDisk implements Disk
       else
       {
         System.out.println ("Not a 2mg file");
-        this.blocks = (int) file.length () / 4096 * 8; // reduce blocks to a multiple of 8
+        this.blocks = length / 4096 * 8; // reduce blocks to a multiple of 8
         tracks = blocks / 8;          // change parameter!
         sectors = 8;                  // change parameter!
         this.sectorSize = 512;
@@ -160,13 +212,13 @@ public class AppleDisk implements Disk
       this.sectorSize = 512;
       this.trackSize = sectors * sectorSize;
     }
-    else if (file.length () == 143360 && tracks == 256 && sectors == 8)    // wiz4
+    else if (length == 143360 && tracks == 256 && sectors == 8)    // wiz4
     {
       this.blocks = tracks * sectors;
       this.sectorSize = 512;
       this.trackSize = sectors * sectorSize;
     }
-    else if (file.length () == 819200 && tracks == 50 && sectors == 32)    // unidisk
+    else if (length == 819200 && tracks == 50 && sectors == 32)    // unidisk
     {
       this.blocks = tracks * sectors;
       this.sectorSize = 256;
@@ -175,7 +227,7 @@ public class AppleDisk implements Disk
     else
     {
       this.blocks = tracks * sectors;
-      this.sectorSize = (int) file.length () / blocks;
+      this.sectorSize = length / blocks;
       this.trackSize = sectors * sectorSize;
     }
 
@@ -195,29 +247,24 @@ public class AppleDisk implements Disk
       System.out.printf ("Blocks      : %d%n", blocks);
     }
 
-    diskBuffer = new byte[blocks * sectorSize];
-
     hasData = new boolean[blocks];
 
     if (debug)
     {
-      System.out.printf ("DiskBuffer size : %,d%n", diskBuffer.length);
+      System.out.printf ("DiskBuffer size : %,d%n", blocks * sectorSize);
       System.out.printf ("Skip size       : %,d%n", skip);
     }
 
-    try (BufferedInputStream in = new BufferedInputStream (new FileInputStream (file)))
+    if (loader != null && skip + blocks * sectorSize > length)
     {
-
-      if (skip > 0)
-        in.skip (skip);
-      in.read (diskBuffer);
-    }
-    catch (IOException e)
-    {
-      e.printStackTrace ();
-      System.exit (1);
+      loader.load (0, length);              // the padded copy needs all of the data
+      this.loader = null;
     }
 
+    this.skip = skip;
+    diskBuffer = getView (image, skip, blocks * sectorSize);
+
+    createAddresses ();
     checkSectorsForData ();
   }
 
@@ -229,6 +276,7 @@ public class AppleDisk implements Disk
     sectors = 16;
     blocks = 560;
     hasData = new boolean[blocks];
+    createAddresses ();
     checkSectorsForData ();
   }
 
@@ -239,13 +287,16 @@ public class AppleDisk implements Disk
     this.tracks = tracks;
     this.sectors = sectors;
     file = disk.file;
-    diskBuffer = disk.getDiskBuffer ();
+    diskBuffer = ByteBuffer.wrap (disk.getDiskBuffer ());
+    source = ByteBuffer.wrap (disk.getBuffer ()).asReadOnlyBuffer ();
+    sourceSuffix = "v2d";
 
     trackSize = 4096;
     sectorSize = trackSize / sectors;
     blocks = tracks * sectors;
     hasData = new boolean[blocks];
 
+    createAddresses ();
     checkSectorsForData ();
   }
 
@@ -256,7 +307,8 @@ public class AppleDisk implements Disk
     tracks = 35;
     trackSize = 4096;
     file = disk.file;
-    diskBuffer = disk.getDiskBuffer ();
+    diskBuffer = ByteBuffer.wrap (disk.getDiskBuffer ());
+    createAddresses ();
   }
 
   // ---------------------------------------------------------------------------------//
@@ -267,7 +319,12 @@ public class AppleDisk implements Disk
     this.tracks = tracks;
     this.sectors = sectors;
     file = wozFile.file;
-    diskBuffer = wozFile.getDiskBuffer ();
+    diskBuffer = ByteBuffer.wrap (wozFile.getDiskBuffer ());
+    source = ByteBuffer.wrap (wozFile.getBuffer ()).asReadOnlyBuffer ();
+    sourceSuffix = "woz";
+
+    if (wozFile.getDiskType () == 1)          // 5.25" tracks are decoded when read
+      loader = new WozImage (wozFile);
 
     if (sectors == 13)
     {
@@ -283,17 +340,28 @@ public class AppleDisk implements Disk
     blocks = tracks * sectors;
     hasData = new boolean[blocks];
 
+    createAddresses ();
     checkSectorsForData ();
   }
 
+  // Large images are mapped rather than copied, so opening a hard disk only costs the
+  // page faults for the blocks that are actually read. The buffer is read-only so that
+  // it can be shared between disks, each of which keeps the sectors written to it.
   // ---------------------------------------------------------------------------------//
-  private byte[] getPrefix (File path)
+  public static ByteBuffer readImage (File file)
   // ---------------------------------------------------------------------------------//
   {
-    byte[] buffer = new byte[0x54];
-    try (BufferedInputStream file = new BufferedInputStream (new FileInputStream (path)))
+    assert (file.exists ()) : "No such path :" + file.getAbsolutePath ();
+    assert (!file.isDirectory ()) : "File is directory :" + file.getAbsolutePath ();
+    assert (file.length () <= Integer.MAX_VALUE) : "File too large";
+
+    try (FileChannel channel = FileChannel.open (file.toPath (), StandardOpenOption.READ))
     {
-      file.read (buffer);
+      long length = channel.size ();
+      if (length >= MAPPED_THRESHOLD)
+        return channel.map (FileChannel.MapMode.READ_ONLY, 0, length);
+
+      return ByteBuffer.wrap (Files.readAllBytes (file.toPath ())).asReadOnlyBuffer ();
     }
     catch (IOException e)
     {
@@ -301,38 +369,148 @@ public class AppleDisk implements Disk
       System.exit (1);
     }
 
+    return null;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static ByteBuffer getView (ByteBuffer image, int skip, int size)
+  // ---------------------------------------------------------------------------------//
+  {
+    ByteBuffer view = image.duplicate ();
+
+    if (skip + size <= image.limit ())
+    {
+      view.position (skip);
+      view.limit (skip + size);
+      return view.slice ();
+    }
+
+    // the file is shorter than the disk it describes - pad it with zeroes
+    byte[] buffer = new byte[size];
+    if (skip < image.limit ())
+    {
+      view.position (skip);
+      view.get (buffer, 0, image.limit () - skip);
+    }
+
+    return ByteBuffer.wrap (buffer);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void load (int diskOffset, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (loader != null)
+      loader.load (skip + diskOffset, length);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void loadAll ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (loader != null)
+    {
+      loader.load (0, (image != null ? image : diskBuffer).limit ());
+      loader = null;
+      checked = null;
+      checkSectorsForData ();
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public boolean isMapped ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return diskBuffer.isDirect ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static byte[] getPrefix (ByteBuffer image)
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[] buffer = new byte[0x54];
+
+    ByteBuffer view = image.duplicate ();
+    view.get (buffer, 0, Math.min (buffer.length, view.remaining ()));
+
     return buffer;
   }
 
+  // Addresses depend on the number and size of the blocks, but not on the interleave,
+  // so they are only replaced when the block size changes.
+  // ---------------------------------------------------------------------------------//
+  private void createAddresses ()
+  // ---------------------------------------------------------------------------------//
+  {
+    addresses = new DiskAddress[blocks];
+    for (int block = 0; block < blocks; block++)
+      addresses[block] = new AppleDiskAddress (this, block);
+
+    blockList = Collections.unmodifiableList (Arrays.asList (addresses));
+  }
+
   // ---------------------------------------------------------------------------------//
   private void checkSectorsForData ()
   // ---------------------------------------------------------------------------------//
   {
-    // force blockList to be rebuilt with the correct number/size of blocks
-    blockList = null;
+    // checking every block would load the whole image, so wait until each is asked for
+    if (loader != null)
+    {
+      checked = new BitSet (blocks);
+      return;
+    }
 
     for (DiskAddress da : this)
-    {
-      if (sectorSize == SECTOR_SIZE)                    // 256 byte sectors
-      {
-        int diskOffset = getBufferOffset (da);
-        hasData[da.getBlockNo ()] = check (diskOffset);
-      }
-      else                                              // 512 byte blocks
+      hasData[da.getBlockNo ()] = checkBlock (da);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private boolean checkBlock (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (sectorSize == SECTOR_SIZE)                      // 256 byte sectors
+      return check (getBufferOffset (da));
+
+    return check (getBufferOffset (da, 0)) || check (getBufferOffset (da, 1));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private boolean hasData (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (checked != null)
+      synchronized (this)
       {
-        int diskOffset1 = getBufferOffset (da, 0);
-        int diskOffset2 = getBufferOffset (da, 1);
-        hasData[da.getBlockNo ()] = check (diskOffset1) || check (diskOffset2);
+        if (checked != null && !checked.get (block))
+        {
+          hasData[block] = checkBlock (getDiskAddress (block));
+          checked.set (block);
+        }
       }
-    }
+
+    return hasData[block];
   }
 
   // ---------------------------------------------------------------------------------//
   private boolean check (int diskOffset)
   // ---------------------------------------------------------------------------------//
   {
-    for (int i = diskOffset, max = diskOffset + SECTOR_SIZE; i < max; i++)
-      if (diskBuffer[i] != emptyByte)
+    byte[] sector = overlay.isEmpty () ? null : overlay.get (diskOffset);
+    if (sector != null)
+    {
+      for (byte b : sector)
+        if (b != emptyByte)
+          return true;
+      return false;
+    }
+
+    load (diskOffset, SECTOR_SIZE);
+
+    // compare a word at a time - the pattern is the same in either byte order
+    long emptyWord = (emptyByte & 0xFFL) * 0x0101010101010101L;
+
+    for (int i = diskOffset, max = diskOffset + SECTOR_SIZE; i < max; i += 8)
+      if (diskBuffer.getLong (i) != emptyWord)
         return true;
     return false;
   }
@@ -386,7 +564,7 @@ public class AppleDisk implements Disk
   public boolean isBlockEmpty (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    return !hasData[da.getBlockNo ()];
+    return !hasData (da.getBlockNo ());
   }
 
   // ---------------------------------------------------------------------------------//
@@ -394,7 +572,7 @@ public class AppleDisk implements Disk
   public boolean isBlockEmpty (int block)
   // ---------------------------------------------------------------------------------//
   {
-    return !hasData[block];
+    return !hasData (block);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -402,7 +580,22 @@ public class AppleDisk implements Disk
   public boolean isBlockEmpty (int track, int sector)
   // ---------------------------------------------------------------------------------//
   {
-    return !hasData[getDiskAddress (track, sector).getBlockNo ()];
+    return !hasData (getDiskAddress (track, sector).getBlockNo ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isBlockLoaded (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (loader == null)
+      return true;
+
+    if (sectorSize == SECTOR_SIZE)
+      return loader.isLoaded (skip + getBufferOffset (da), SECTOR_SIZE);
+
+    return loader.isLoaded (skip + getBufferOffset (da, 0), SECTOR_SIZE)
+        && loader.isLoaded (skip + getBufferOffset (da, 1), SECTOR_SIZE);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -413,6 +606,63 @@ public class AppleDisk implements Disk
     return file;
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void saveImage (Path path) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    // a disk decoded from nibbles is saved as the file it came from, which can't be
+    // given the changed sectors
+    if (image == null && source != null)
+    {
+      if (overlay.size () > 0)
+        throw new IOException (String.format (
+            "%d changed sector%s can't be saved in a %s image", overlay.size (),
+            overlay.size () == 1 ? "" : "s", sourceSuffix.toUpperCase ()));
+
+      try (FileChannel channel = FileChannel.open (path, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.WRITE))
+      {
+        ByteBuffer buffer = source.duplicate ();
+        buffer.rewind ();
+        while (buffer.hasRemaining ())
+          channel.write (buffer);
+      }
+      return;
+    }
+
+    loadAll ();
+
+    ByteBuffer buffer = (image != null ? image : diskBuffer).duplicate ();
+    buffer.rewind ();
+
+    try (FileChannel channel = FileChannel.open (path, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE))
+    {
+      overlay.write (buffer, image != null ? skip : 0, channel);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getImageSuffix ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (sourceSuffix != null)
+      return sourceSuffix;
+
+    String suffix = Utility.getSuffix (file.getName ());
+    return suffix.isEmpty () || suffix.equals ("sdk") ? "dsk" : suffix;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int getModifiedSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return overlay.size ();
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public byte[] readBlock (DiskAddress da)
@@ -432,15 +682,101 @@ public class AppleDisk implements Disk
   // ---------------------------------------------------------------------------------//
   {
     byte[] buffer = new byte[daList.size () * sectorSize];
-    int ptr = 0;
+    readBlocksInto (daList, buffer, 0);
+    return buffer;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void readBlocksInto (List<DiskAddress> daList, byte[] buffer, int offset)
+  // ---------------------------------------------------------------------------------//
+  {
+    int ptr = offset;
     for (DiskAddress da : daList)
     {
       // sparse text/PNT/PIC files may have gaps
       if (da != null && (da.getBlockNo () > 0 || ((AppleDiskAddress) da).zeroFlag ()))
         readBuffer (da, buffer, ptr);
+      else
+        Arrays.fill (buffer, ptr, ptr + sectorSize, (byte) 0);
       ptr += sectorSize;
     }
-    return buffer;
+  }
+
+  // Returns the sector without copying it whenever it is contiguous in the disk buffer.
+  // Only a 512 byte block whose two halves are interleaved apart needs a copy.
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public ByteBuffer readBlockView (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    return readBlockView (da, interleave);
+  }
+
+  // Reads the block as it would be read with another interleave, without switching to
+  // it. setInterleave () checks every sector for data, so the format checks use this to
+  // score each interleave, and then switch once to the one they have chosen.
+  // ---------------------------------------------------------------------------------//
+  public ByteBuffer readBlockView (DiskAddress da, int interleave)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (da == null)
+    {
+      System.out.println ("Disk address is null");
+      return ByteBuffer.allocate (sectorSize).asReadOnlyBuffer ();
+    }
+
+    assert da.getDisk () == this : "Disk address not applicable to this disk";
+    assert interleave >= 0 && interleave <= MAX_INTERLEAVE : "Invalid interleave : "
+        + interleave;
+
+    int diskOffset;
+    int secondOffset;
+    if (sectorSize == SECTOR_SIZE)
+    {
+      diskOffset = getSectorOffset (da.getTrackNo (), da.getSectorNo (), interleave);
+      secondOffset = diskOffset + SECTOR_SIZE;
+    }
+    else
+    {
+      diskOffset = getSectorOffset (da.getTrackNo (), da.getSectorNo () * 2, interleave);
+      secondOffset =
+          getSectorOffset (da.getTrackNo (), da.getSectorNo () * 2 + 1, interleave);
+    }
+
+    boolean contiguous = secondOffset == diskOffset + SECTOR_SIZE;
+    if (!contiguous || (!overlay.isEmpty () && (overlay.get (diskOffset) != null
+        || (sectorSize == BLOCK_SIZE && overlay.get (secondOffset) != null))))
+    {
+      byte[] buffer = new byte[sectorSize];
+      copySector (diskOffset, buffer, 0);
+      if (sectorSize == BLOCK_SIZE)
+        copySector (secondOffset, buffer, SECTOR_SIZE);
+      return ByteBuffer.wrap (buffer).asReadOnlyBuffer ();
+    }
+
+    load (diskOffset, sectorSize);
+
+    ByteBuffer view = diskBuffer.asReadOnlyBuffer ();
+    view.limit (diskOffset + sectorSize);
+    view.position (diskOffset);
+    return view.slice ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public ByteBuffer readBlockView (int track, int sector)
+  // ---------------------------------------------------------------------------------//
+  {
+    return readBlockView (getDiskAddress (track, sector));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public ByteBuffer readBlockView (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    return readBlockView (getDiskAddress (block));
   }
 
   // ---------------------------------------------------------------------------------//
@@ -501,6 +837,7 @@ public class AppleDisk implements Disk
     blocks = tracks * sectors;
 
     hasData = new boolean[blocks];
+    createAddresses ();
     checkSectorsForData ();
 
     if (actionListenerList != null)
@@ -518,7 +855,10 @@ public class AppleDisk implements Disk
       return null;
       //      return new AppleDiskAddress (this, 0);    this was looping 26/07/2016
     }
-    return new AppleDiskAddress (this, track, sector);
+    if ((track & 0x40) != 0)              // zero flag - not one of the shared addresses
+      return new AppleDiskAddress (this, track, sector);
+
+    return addresses[(track & 0x3F) * getBlocksPerTrack () + (sector & 0x1F)];
   }
 
   // ---------------------------------------------------------------------------------//
@@ -533,7 +873,7 @@ public class AppleDisk implements Disk
       return null;
       //      return new AppleDiskAddress (this, 0);    // this was looping 26/07/2016
     }
-    return new AppleDiskAddress (this, block);
+    return addresses[block];
   }
 
   // ---------------------------------------------------------------------------------//
@@ -546,7 +886,7 @@ public class AppleDisk implements Disk
     for (int block : blocks)
     {
       assert (isValidAddress (block)) : "Invalid block : " + block;
-      addressList.add (new AppleDiskAddress (this, block));
+      addressList.add (addresses[block]);
     }
     return addressList;
   }
@@ -598,16 +938,39 @@ public class AppleDisk implements Disk
     if (sectorSize == SECTOR_SIZE)
     {
       int diskOffset = getBufferOffset (da);
-      System.arraycopy (diskBuffer, diskOffset, buffer, bufferOffset, SECTOR_SIZE);
+      copySector (diskOffset, buffer, bufferOffset);
     }
     else
     {
       int diskOffset = getBufferOffset (da, 0);
-      System.arraycopy (diskBuffer, diskOffset, buffer, bufferOffset, SECTOR_SIZE);
+      copySector (diskOffset, buffer, bufferOffset);
 
       diskOffset = getBufferOffset (da, 1);
-      System.arraycopy (diskBuffer, diskOffset, buffer, bufferOffset + SECTOR_SIZE,
-          SECTOR_SIZE);
+      copySector (diskOffset, buffer, bufferOffset + SECTOR_SIZE);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void copySector (int diskOffset, byte[] buffer, int bufferOffset)
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[] sector = overlay.isEmpty () ? null : overlay.get (diskOffset);
+    if (sector != null)
+    {
+      System.arraycopy (sector, 0, buffer, bufferOffset, SECTOR_SIZE);
+      return;
+    }
+
+    load (diskOffset, SECTOR_SIZE);
+
+    if (diskBuffer.hasArray ())
+      System.arraycopy (diskBuffer.array (), diskBuffer.arrayOffset () + diskOffset,
+          buffer, bufferOffset, SECTOR_SIZE);
+    else
+    {
+      ByteBuffer source = diskBuffer.duplicate ();
+      source.position (diskOffset);
+      source.get (buffer, bufferOffset, SECTOR_SIZE);
     }
   }
 
@@ -622,17 +985,11 @@ public class AppleDisk implements Disk
         + interleave;
 
     if (sectorSize == SECTOR_SIZE)
-    {
-      int diskOffset = getBufferOffset (da);
-      System.arraycopy (buffer, 0, diskBuffer, diskOffset, SECTOR_SIZE);
-    }
+      overlay.put (getBufferOffset (da), buffer, 0);
     else
     {
-      int diskOffset = getBufferOffset (da, 0);
-      System.arraycopy (buffer, 0, diskBuffer, diskOffset, SECTOR_SIZE);
-
-      diskOffset = getBufferOffset (da, 1);
-      System.arraycopy (buffer, SECTOR_SIZE, diskBuffer, diskOffset, SECTOR_SIZE);
+      overlay.put (getBufferOffset (da, 0), buffer, 0);
+      overlay.put (getBufferOffset (da, 1), buffer, SECTOR_SIZE);
     }
   }
 
@@ -642,8 +999,7 @@ public class AppleDisk implements Disk
   {
     assert sectorSize == SECTOR_SIZE;
 
-    return da.getTrackNo () * trackSize
-        + interleaveSector[interleave][da.getSectorNo ()] * SECTOR_SIZE;
+    return getSectorOffset (da.getTrackNo (), da.getSectorNo (), interleave);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -654,8 +1010,14 @@ public class AppleDisk implements Disk
 
     assert seq == 0 || seq == 1;
 
-    return da.getTrackNo () * trackSize
-        + interleaveSector[interleave][da.getSectorNo () * 2 + seq] * SECTOR_SIZE;
+    return getSectorOffset (da.getTrackNo (), da.getSectorNo () * 2 + seq, interleave);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private int getSectorOffset (int track, int sector, int interleave)
+  // ---------------------------------------------------------------------------------//
+  {
+    return track * trackSize + interleaveSector[interleave][sector] * SECTOR_SIZE;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -711,6 +1073,12 @@ public class AppleDisk implements Disk
     text.append (String.format ("Track size........... %,d%n", trackSize));
     text.append (String.format ("Sector size.......... %d%n", sectorSize));
     text.append (String.format ("Interleave........... %d", interleave));
+    if (isMapped ())
+      text.append (String.format ("%nMemory mapped........ true"));
+    if (loader != null)
+      text.append (String.format ("%n%s", loader));
+    if (!overlay.isEmpty ())
+      text.append (String.format ("%nModified sectors..... %,d", overlay.size ()));
 
     if (wozFile != null)
     {
@@ -726,13 +1094,6 @@ public class AppleDisk implements Disk
   public Iterator<DiskAddress> iterator ()
   // ---------------------------------------------------------------------------------//
   {
-    if (blockList == null)
-    {
-      blockList = new ArrayList<> (blocks);
-      for (int block = 0; block < blocks; block++)
-        blockList.add (new AppleDiskAddress (this, block));
-    }
-
     return blockList.iterator ();
   }
 
@@ -9,7 +9,7 @@ public class AppleDiskAddress implements DiskAddress
   private final int sector;
   public final Disk owner;
 
-  private boolean zeroFlag;
+  private final boolean zeroFlag;
 
   // ---------------------------------------------------------------------------------//
   public AppleDiskAddress (Disk owner, int block)
@@ -17,6 +17,7 @@ public class AppleDiskAddress implements DiskAddress
   {
     this.owner = owner;
     this.block = block;
+    zeroFlag = false;
     int sectorsPerTrack = owner.getBlocksPerTrack ();
     if (sectorsPerTrack == 0)
     {
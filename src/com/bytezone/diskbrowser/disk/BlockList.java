@@ -0,0 +1,146 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The blocks of a file, kept as block numbers rather than DiskAddress objects. A large
+// file on a hard disk has tens of thousands of blocks, so this is one int each instead
+// of a reference and a boxed Integer. NO_BLOCK marks a missing block, such as a gap
+// in a random access text file.
+// -----------------------------------------------------------------------------------//
+public class BlockList
+// -----------------------------------------------------------------------------------//
+{
+  public static final int NO_BLOCK = -1;
+
+  private int[] blocks;
+  private int size;
+
+  // ---------------------------------------------------------------------------------//
+  public BlockList ()
+  // ---------------------------------------------------------------------------------//
+  {
+    this (8);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public BlockList (int capacity)
+  // ---------------------------------------------------------------------------------//
+  {
+    blocks = new int[Math.max (1, capacity)];
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public void add (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (size == blocks.length)
+      blocks = Arrays.copyOf (blocks, size * 2);
+    blocks[size++] = block;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public void addRange (int firstBlock, int lastBlock)      // inclusive
+  // ---------------------------------------------------------------------------------//
+  {
+    for (int block = firstBlock; block <= lastBlock; block++)
+      add (block);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public void addAll (BlockList other)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (size + other.size > blocks.length)
+      blocks = Arrays.copyOf (blocks, Math.max (size * 2, size + other.size));
+    System.arraycopy (other.blocks, 0, blocks, size, other.size);
+    size += other.size;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int get (int index)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (index >= size)
+      throw new IndexOutOfBoundsException ("Index " + index + " size " + size);
+    return blocks[index];
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getLast ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return get (size - 1);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public void removeLast ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (size > 0)
+      size--;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int size ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return size;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public boolean isEmpty ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return size == 0;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public boolean contains (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (int i = 0; i < size; i++)
+      if (blocks[i] == block)
+        return true;
+    return false;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public boolean contains (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    return da != null && contains (da.getBlockNo ());
+  }
+
+  // Builds the list that getSectors () and Disk.readBlocks () expect. The addresses
+  // come from the disk's shared pool, so only the list itself is allocated. Missing
+  // and invalid blocks become nulls, which readBlocks () treats as empty.
+  // ---------------------------------------------------------------------------------//
+  public List<DiskAddress> getDiskAddresses (Disk disk)
+  // ---------------------------------------------------------------------------------//
+  {
+    List<DiskAddress> addresses = new ArrayList<> (size);
+    addDiskAddresses (disk, addresses);
+    return addresses;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public void addDiskAddresses (Disk disk, List<DiskAddress> addresses)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (int i = 0; i < size; i++)
+    {
+      int block = blocks[i];
+      addresses.add (disk.isValidAddress (block) ? disk.getDiskAddress (block) : null);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return Arrays.toString (Arrays.copyOf (blocks, size));
+  }
+}
@@ -0,0 +1,186 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import com.bytezone.diskbrowser.cpm.CPMDisk;
+import com.bytezone.diskbrowser.dos.DosDisk;
+import com.bytezone.diskbrowser.infocom.InfocomDisk;
+import com.bytezone.diskbrowser.pascal.PascalDisk;
+import com.bytezone.diskbrowser.prodos.ProdosDisk;
+
+// Boot sector checksums of known floppy disks. DiskFactory uses these to go straight
+// to the right format check instead of probing for every format. The table starts
+// with signatures.txt, can be extended with load (), and in learning mode records the
+// format of every floppy that is opened.
+// -----------------------------------------------------------------------------------//
+public class BootSignatures
+// -----------------------------------------------------------------------------------//
+{
+  private static final String RESOURCE = "com/bytezone/diskbrowser/disk/signatures.txt";
+  private static final int BOOT_SECTOR_SIZE = 256;
+  private static final boolean debug = false;
+
+  private static final Map<Long, FormatHint> signatures = new HashMap<> ();
+  private static boolean learning;
+
+  public enum FormatHint
+  {
+    EMPTY, DOS, PRODOS, PASCAL, CPM, INFOCOM
+  }
+
+  static
+  {
+    InputStream stream =
+        BootSignatures.class.getClassLoader ().getResourceAsStream (RESOURCE);
+    if (stream == null)
+      System.out.println ("Missing resource : " + RESOURCE);
+    else
+      try (BufferedReader in = new BufferedReader (new InputStreamReader (stream)))
+      {
+        read (in);
+      }
+      catch (IOException e)
+      {
+        e.printStackTrace ();
+      }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private BootSignatures ()
+  // ---------------------------------------------------------------------------------//
+  {
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static long checksum (ByteBuffer image)
+  // ---------------------------------------------------------------------------------//
+  {
+    ByteBuffer view = image.duplicate ();
+    view.limit (Math.min (BOOT_SECTOR_SIZE, view.limit ()));
+
+    CRC32 checksum = new CRC32 ();
+    byte[] buffer = new byte[view.remaining ()];
+    view.get (buffer);
+    checksum.update (buffer, 0, buffer.length);
+
+    return checksum.getValue ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static synchronized FormatHint get (long checksum)
+  // ---------------------------------------------------------------------------------//
+  {
+    return signatures.get (checksum);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static synchronized void learn (long checksum, FormattedDisk disk)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!learning || signatures.containsKey (checksum))
+      return;
+
+    FormatHint hint = getHint (disk);
+    if (hint == null)
+      return;
+
+    signatures.put (checksum, hint);
+    if (debug)
+      System.out.printf ("Learned %d : %s%n", checksum, hint);
+  }
+
+  // a DOS disk with a second format would lose the other half if it were sent
+  // straight to the DOS check, so those (and unformatted disks) are not recorded
+  // ---------------------------------------------------------------------------------//
+  private static FormatHint getHint (FormattedDisk disk)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (disk instanceof DualDosDisk)
+    {
+      FormattedDisk first = ((DualDosDisk) disk).getCurrentDisk ();
+      return first instanceof DosDisk ? null : getHint (first);
+    }
+
+    if (disk instanceof DosDisk)
+      return FormatHint.DOS;
+    if (disk instanceof ProdosDisk)
+      return FormatHint.PRODOS;
+    if (disk instanceof PascalDisk)
+      return FormatHint.PASCAL;
+    if (disk instanceof CPMDisk)
+      return FormatHint.CPM;
+    if (disk instanceof InfocomDisk)
+      return FormatHint.INFOCOM;
+
+    return null;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public static synchronized void setLearning (boolean value)
+  // ---------------------------------------------------------------------------------//
+  {
+    learning = value;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public static synchronized boolean isLearning ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return learning;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public static synchronized void load (Path path) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    try (BufferedReader in = Files.newBufferedReader (path))
+    {
+      read (in);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public static synchronized void save (Path path) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    try (PrintWriter out = new PrintWriter (Files.newBufferedWriter (path)))
+    {
+      for (Map.Entry<Long, FormatHint> entry : new TreeMap<> (signatures).entrySet ())
+        out.printf ("%-11d %s%n", entry.getKey (), entry.getValue ());
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static void read (BufferedReader in) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    String line;
+    while ((line = in.readLine ()) != null)
+    {
+      line = line.trim ();
+      if (line.isEmpty () || line.startsWith ("*"))
+        continue;
+
+      String[] chunks = line.split ("\\s+");
+      try
+      {
+        signatures.put (Long.parseLong (chunks[0]), FormatHint.valueOf (chunks[1]));
+      }
+      catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+      {
+        System.out.println ("Invalid signature : " + line);
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.util.BitSet;
+
+// Guards a walk along a chain of blocks, such as a ProDOS directory, a DOS catalog or
+// a T/S list. Each block may be visited once, and the walk can take no more steps than
+// the disk has blocks, so a corrupt image whose chain loops cannot hang a scan.
+//   ChainWalker walker = new ChainWalker (disk, "Catalog");
+//   while (walker.visit (block))
+//     block = next (block);
+// A walker with no name reports nothing, for format checks that expect bad chains.
+// -----------------------------------------------------------------------------------//
+public class ChainWalker
+// -----------------------------------------------------------------------------------//
+{
+  private final String name;
+  private final int maxSteps;
+  private final BitSet visited;
+
+  private int steps;
+  private int cycleBlock = BlockList.NO_BLOCK;
+
+  // ---------------------------------------------------------------------------------//
+  public ChainWalker (Disk disk, String name)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.name = name;
+    maxSteps = disk.getTotalBlocks ();
+    visited = new BitSet (maxSteps);
+  }
+
+  // Returns false if the block has already been visited, or the walk has gone on for
+  // longer than the disk has blocks. The first failure is reported.
+  // ---------------------------------------------------------------------------------//
+  public boolean visit (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (cycleBlock != BlockList.NO_BLOCK || block < 0)
+      return false;
+
+    if (visited.get (block))
+    {
+      if (name != null)
+        System.out.printf ("%s loops back to block %d after %d blocks%n", name, block,
+            steps);
+    }
+    else if (steps >= maxSteps)
+    {
+      if (name != null)
+        System.out.printf ("%s is longer than the disk at block %d%n", name, block);
+    }
+    else
+    {
+      visited.set (block);
+      steps++;
+      return true;
+    }
+
+    cycleBlock = block;
+    return false;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public boolean visit (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    return visit (da.getBlockNo ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public boolean hasCycle ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return cycleBlock != BlockList.NO_BLOCK;
+  }
+
+  // the block that closed the loop, or NO_BLOCK
+  // ---------------------------------------------------------------------------------//
+  public int getCycleBlock ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return cycleBlock;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getSteps ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return steps;
+  }
+}
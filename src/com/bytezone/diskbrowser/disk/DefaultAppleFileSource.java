@@ -112,6 +112,14 @@ public class DefaultAppleFileSource implements AppleFileSource
     return title;
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public List<DiskAddress> getOwnedSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return blocks;
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public boolean contains (DiskAddress diskAddress)
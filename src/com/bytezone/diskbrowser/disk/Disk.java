@@ -2,6 +2,9 @@ package com.bytezone.diskbrowser.disk;
 
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.List;
 
 // -----------------------------------------------------------------------------------//
@@ -42,14 +45,29 @@ public interface Disk extends Iterable<DiskAddress>
 
   public byte[] readBlocks (List<DiskAddress> daList);
 
+  // read-only views of the disk buffer - only valid until the next writeBlock ()
+  public ByteBuffer readBlockView (int block);
+
+  public ByteBuffer readBlockView (int track, int sector);
+
+  public ByteBuffer readBlockView (DiskAddress da);
+
+  public void readBlocksInto (List<DiskAddress> daList, byte[] buffer, int offset);
+
+  // writes are kept apart from the image until it is saved
   public void writeBlock (DiskAddress da, byte[] buffer);
 
+  public int getModifiedSectors ();
+
   public boolean isBlockEmpty (int block);
 
   public boolean isBlockEmpty (int track, int sector);
 
   public boolean isBlockEmpty (DiskAddress da);
 
+  // false until the block has been read from an image that is loaded on demand
+  public boolean isBlockLoaded (DiskAddress da);
+
   public boolean isValidAddress (int block);
 
   public boolean isValidAddress (int track, int sector);
@@ -58,6 +76,14 @@ public interface Disk extends Iterable<DiskAddress>
 
   public File getFile ();
 
+  // the image this disk was read from - after decompression, if it was compressed.
+  // A sector image includes any blocks that have been written, a WOZ or V2D file is
+  // saved as it was read.
+  public void saveImage (Path path) throws IOException;
+
+  // the suffix of the file that saveImage () writes
+  public String getImageSuffix ();
+
   public void addActionListener (ActionListener listener);
 
   public void removeActionListener (ActionListener listener);
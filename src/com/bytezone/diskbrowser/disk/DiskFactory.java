@@ -1,18 +1,23 @@
 package com.bytezone.diskbrowser.disk;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Enumeration;
+import java.util.Map;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import com.bytezone.diskbrowser.cpm.CPMDisk;
+import com.bytezone.diskbrowser.disk.BootSignatures.FormatHint;
+import com.bytezone.diskbrowser.disk.DiskProbe.Format;
 import com.bytezone.diskbrowser.dos.DosDisk;
 import com.bytezone.diskbrowser.infocom.InfocomDisk;
 import com.bytezone.diskbrowser.nib.NibFile;
@@ -58,42 +63,71 @@ public class DiskFactory
     return disk;
   }
 
+  // A disk inside a zip file. The entry is inflated when it is first opened, and the
+  // disk is named as if the zip file were a folder.
+  // ---------------------------------------------------------------------------------//
+  public static FormattedDisk createDisk (File zipFile, String entryName)
+  // ---------------------------------------------------------------------------------//
+  {
+    try
+    {
+      byte[] buffer = ZipEntryCache.get (zipFile, entryName);
+      return create (new File (zipFile, entryName).getPath (), buffer);
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+      return null;
+    }
+  }
+
   // ---------------------------------------------------------------------------------//
   private static FormattedDisk create (String path)
   // ---------------------------------------------------------------------------------//
+  {
+    return create (path, null);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static FormattedDisk create (String path, byte[] buffer)
+  // ---------------------------------------------------------------------------------//
   {
     if (debug)
       System.out.println ("\nFactory : " + path);
 
     File file = new File (path);
-    if (!file.exists ())
+    if (buffer == null && !file.exists ())
       return null;
 
     String suffix = path.substring (path.lastIndexOf (".") + 1).toLowerCase ();
-    Boolean compressed = false;
+    Boolean compressed = buffer != null;
     Path originalPath = Paths.get (path);
+    ImageLoader loader = null;
 
-    if ("gz".equals (suffix))
+    // a large hard disk is indexed, so that only the blocks that are read get inflated
+    GzipImage gzipImage = null;
+    if ("gz".equals (suffix) && buffer == null
+        && isHardDiskSuffix (Utility.getSuffix (file.getName ())))
+      gzipImage = GzipImage.open (file);
+
+    if (gzipImage != null)
+    {
+      if (debug)
+        System.out.println (" ** indexed gzip **");
+      if (!gzipImage.isComplete ())
+        loader = gzipImage;
+      suffix = Utility.getSuffix (file.getName ());
+      compressed = true;
+    }
+    else if ("gz".equals (suffix))
     {
       if (debug)
         System.out.println (" ** gzip **");
-      try
+      try (InputStream in = new GZIPInputStream (buffer == null
+          ? new FileInputStream (path) : new ByteArrayInputStream (buffer)))
       {
-        InputStream in = new GZIPInputStream (new FileInputStream (path));
-        File tmp = File.createTempFile ("gzip", null);
-        FileOutputStream fos = new FileOutputStream (tmp);
-
-        int bytesRead;
-        byte[] buffer = new byte[1024];
-        while ((bytesRead = in.read (buffer)) > 0)
-          fos.write (buffer, 0, bytesRead);
-
-        fos.close ();
-        in.close ();
-        tmp.deleteOnExit ();
-
+        buffer = in.readAllBytes ();
         suffix = Utility.getSuffix (file.getName ());     // ignores the .gz and .zip
-        file = tmp;
         compressed = true;
       }
       catch (IOException e)  // can get EOFException: Unexpected end of ZLIB input stream
@@ -108,42 +142,21 @@ public class DiskFactory
         System.out.println (" ** zip **");
       try
       {
-        ZipFile zipFile = new ZipFile (path);
-        Enumeration<? extends ZipEntry> entries = zipFile.entries ();
-
-        while (entries.hasMoreElements ())        // loop until first valid name
-        {
-          ZipEntry entry = entries.nextElement ();
-          if (Utility.validFileType (entry.getName ()))
-          {
-            InputStream stream = zipFile.getInputStream (entry);
-            File tmp = File.createTempFile ("zip", null);
-            FileOutputStream fos = new FileOutputStream (tmp);
-
-            int bytesRead;
-            byte[] buffer = new byte[1024];
-            while ((bytesRead = stream.read (buffer)) > 0)
-              fos.write (buffer, 0, bytesRead);
-
-            stream.close ();
-            fos.close ();
-            tmp.deleteOnExit ();
-
-            suffix = Utility.getSuffix (file.getName ());   // ignores the .gz and .zip
-            file = tmp;
-            compressed = true;
-
-            break;
-          }
-        }
-
-        zipFile.close ();
+        buffer = buffer == null ? readFirstEntry (file) : readFirstEntry (buffer);
       }
       catch (IOException e)
       {
         e.printStackTrace ();
         return null;
       }
+
+      if (buffer != null)
+      {
+        suffix = Utility.getSuffix (file.getName ());   // ignores the .gz and .zip
+        compressed = true;
+      }
+      else if (compressed)                  // nothing usable in a zip inside a zip
+        return null;
     }
 
     if (suffix.equals ("sdk"))
@@ -152,13 +165,8 @@ public class DiskFactory
         System.out.println (" ** sdk **");
       try
       {
-        NuFX nuFX = new NuFX (file);
-        File tmp = File.createTempFile ("sdk", null);
-        FileOutputStream fos = new FileOutputStream (tmp);
-        fos.write (nuFX.getBuffer ());
-        fos.close ();
-        tmp.deleteOnExit ();
-        file = tmp;
+        NuFX nuFX = buffer == null ? new NuFX (file) : new NuFX (buffer);
+        buffer = nuFX.getBuffer ();
         suffix = "dsk";
         compressed = true;
       }
@@ -176,15 +184,31 @@ public class DiskFactory
     FormattedDisk disk = null;
     FormattedDisk disk2 = null;
 
+    // read the file once - every AppleDisk built from it below is a view of this image.
+    // A decompressed image never touches the file system, so from here on the file is
+    // only used as the disk's name.
+    ByteBuffer image = gzipImage == null ? null : gzipImage.getImage ();
+    if (image == null && buffer != null)
+      image = ByteBuffer.wrap (buffer).asReadOnlyBuffer ();
+    else if (image == null && !suffix.equals ("woz") && !suffix.equals ("v2d")
+        && !suffix.equals ("nib"))
+      image = AppleDisk.readImage (file);
+
+    long length = image == null ? file.length () : image.limit ();
+
     if (suffix.equals ("hdv"))
     {
       if (debug)
         System.out.println (" ** hdv **");
-      FormattedDisk prodosDisk = checkHardDisk (file);
-      if (prodosDisk != null)
-        return prodosDisk;
+      disk = checkHardDisk (file, image, loader);
+      if (disk != null)
+      {
+        if (compressed)
+          disk.setOriginalPath (originalPath);
+        return disk;
+      }
 
-      disk = check2mgDisk (file);
+      disk = check2mgDisk (file, image, loader);
       if (disk != null)
       {
         if (compressed)
@@ -192,7 +216,8 @@ public class DiskFactory
         return disk;
       }
 
-      AppleDisk appleDisk = new AppleDisk (file, (int) file.length () / 4096, 8);
+      AppleDisk appleDisk =
+          new AppleDisk (file, image, loader, (int) length / 4096, 8, 0);
       return new DataDisk (appleDisk);
     }
 
@@ -200,7 +225,7 @@ public class DiskFactory
     {
       if (debug)
         System.out.println (" ** 2mg **");
-      disk = check2mgDisk (file);
+      disk = check2mgDisk (file, image, loader);
       if (disk != null)
       {
         if (compressed)
@@ -208,33 +233,34 @@ public class DiskFactory
         return disk;
       }
 
-      AppleDisk appleDisk = new AppleDisk (file, (int) file.length () / 4096, 8);
+      AppleDisk appleDisk =
+          new AppleDisk (file, image, loader, (int) length / 4096, 8, 0);
       return new DataDisk (appleDisk);
     }
 
     if (suffix.equals ("img") || suffix.equals ("dimg"))
     {
-      disk = checkDiskCopyDisk (file);
+      disk = checkDiskCopyDisk (file, image);
       if (disk != null)
         return disk;
     }
 
     // Toolkit.do = 143488
     if (((suffix.equals ("po") || suffix.equals ("dsk") || suffix.equals ("do"))
-        && file.length () > 143360))
+        && length > 143360))
     {
-      if (file.length () < 143500)        // slightly bigger than a floppy
+      if (length < 143500)        // slightly bigger than a floppy
       {
-        System.out.println ("File length is wrong: " + file.length ());
-        disk = checkDos (new AppleDisk (file, 35, 16));
+        System.out.println ("File length is wrong: " + length);
+        disk = checkDos (new AppleDisk (file, image, 35, 16, 0));
         if (disk != null)
           return disk;
       }
 
       if (debug)
-        System.out.printf ("  Checking po or dsk hard drive: %,d%n", file.length ());
+        System.out.printf ("  Checking po or dsk hard drive: %,d%n", length);
 
-      disk = checkHardDisk (file);
+      disk = checkHardDisk (file, image, loader);
       if (disk != null)
       {
         if (compressed)
@@ -242,13 +268,14 @@ public class DiskFactory
         return disk;
       }
 
-      if (file.length () == 819200)         // 800K 3.5"
+      if (length == 819200)         // 800K 3.5"
       {
         if (debug)
           System.out.println ("UniDos ?");
         // 2 x 400k disk images
-        AppleDisk appleDisk1 = new AppleDisk (file, 50, 32);
-        AppleDisk appleDisk2 = new AppleDisk (file, 50, 32, (int) (file.length () / 2));
+        AppleDisk appleDisk1 = new AppleDisk (file, image, 50, 32, 0);
+        AppleDisk appleDisk2 =
+            new AppleDisk (file, image, 50, 32, (int) (length / 2));
         disk = checkUnidos (appleDisk1, 1);
         disk2 = checkUnidos (appleDisk2, 2);
         if (disk != null && disk2 != null)
@@ -260,7 +287,8 @@ public class DiskFactory
 
       try
       {
-        AppleDisk appleDisk = new AppleDisk (file, (int) file.length () / 4096, 8);
+        AppleDisk appleDisk =
+            new AppleDisk (file, image, loader, (int) length / 4096, 8, 0);
         if (debug)
           System.out.println ("  created data disk");
         return new DataDisk (appleDisk);
@@ -279,7 +307,7 @@ public class DiskFactory
         System.out.println ("Checking woz");
       try
       {
-        WozFile wozFile = new WozFile (file);
+        WozFile wozFile = buffer == null ? new WozFile (file) : new WozFile (file, buffer);
 
         if (wozFile.getSectorsPerTrack () == 13)
         {
@@ -325,7 +353,7 @@ public class DiskFactory
 
     if (suffix.equals ("v2d"))
     {
-      V2dFile v2dDisk = new V2dFile (file);
+      V2dFile v2dDisk = buffer == null ? new V2dFile (file) : new V2dFile (file, buffer);
       AppleDisk appleDisk256 = new AppleDisk (v2dDisk, 35, 16);
       disk = checkDos (appleDisk256);
       if (disk == null)
@@ -346,8 +374,6 @@ public class DiskFactory
       return null;
     }
 
-    long length = file.length ();
-
     if (length == 116480)           // 13 sector disk
     {
       if (debug)
@@ -355,168 +381,249 @@ public class DiskFactory
       if (!suffix.equals ("d13"))
         System.out.printf ("%s should have a d13 suffix%n", file.getName ());
 
-      AppleDisk appleDisk = new AppleDisk (file, 35, 13);
+      AppleDisk appleDisk = new AppleDisk (file, image, 35, 13, 0);
       disk = checkDos (appleDisk);
       return disk == null ? new DataDisk (appleDisk) : disk;
     }
 
     if (length != 143360)
     {
-      System.out.printf ("%s: invalid file length : %,d%n", file.getName (),
-          file.length ());
+      System.out.printf ("%s: invalid file length : %,d%n", file.getName (), length);
       return null;
     }
 
-    AppleDisk appleDisk256 = new AppleDisk (file, 35, 16);
-    AppleDisk appleDisk512 = new AppleDisk (file, 35, 8);
+    // a known boot sector goes straight to the matching format check
+    long checksum = BootSignatures.checksum (image);
+    FormatHint hint = BootSignatures.get (checksum);
 
-    if (true)
+    if (hint != null && hint != FormatHint.EMPTY)
     {
-      //      long checksum = appleDisk256.getBootChecksum ();
-      long checksum = 0;
-
-      if (checksum == 227968344L)       // empty boot sector
-      {
-        // could be wizardry data, visialc data ...
-        if (debug)
-          System.out.println ("  empty sector checksum : " + checksum);
-      }
-      else if (checksum == 3176296590L  // HIGHRTXT.DSK
-          || checksum == 108825457L     // ARCBOOT.DSK (looping)
-          || checksum == 1439356606L    //
-          || checksum == 1550012074L    //
-          || checksum == 1614602459L    //
-          || checksum == 940889336L     //
-          || checksum == 2936955085L    //
-          || checksum == 1348415927L    //
-          || checksum == 3340889101L    //
-          || checksum == 18315788L      //
-          || checksum == 993895235L     //
-          || checksum == 2378342794L)   // LazerPascal1.dsk
-      {
-        if (debug)
-          System.out.println ("  known DOS checksum : " + checksum);
-        disk = checkDos (appleDisk256);
-        //        disk2 = checkProdos (appleDisk512);     // no need for this
-        if (disk2 != null && disk != null)      // should be impossible
-        {
-          if (debug)
-            System.out.println ("  --> Dual dos/prodos 1");
-          System.out.println ("** impossible **");
-          disk = new DualDosDisk (disk, disk2);
-        }
-      }
-      else if (checksum == 1737448647L      //
-          || checksum == 170399908L         //
-          || checksum == 990032697)         // Apple Assembly Line
-      {
-        if (debug)
-          System.out.println ("  known PRODOS checksum : " + checksum);
-        disk = checkProdos (appleDisk512);
-        disk2 = checkDos (appleDisk256);
-        if (disk2 != null && disk != null)
-        {
-          if (debug)
-            System.out.println ("  --> Dual prodos/dos 2");
-          disk = new DualDosDisk (disk, disk2);
-        }
-      }
-      else if (checksum == 2803644711L    // Apple Pascal disk 0
-          || checksum == 3317783349L      //
-          || checksum == 1728863694L      // Wizardry_I_boot.dsk
-          || checksum == 198094178L)      //
-      {
-        if (debug)
-          System.out.println ("  known PASCAL checksum : " + checksum);
-        disk = checkPascalDisk (appleDisk512);
-        disk2 = checkDos (appleDisk256);
-        if (disk2 != null)
-          disk = new DualDosDisk (disk, disk2);
-      }
-      else if (checksum == 3028642627L    //
-          || checksum == 2070151659L)     // Enchanter
-      {
-        if (debug)
-          System.out.println ("  known INFOCOM checksum : " + checksum);
-        disk = checkInfocomDisk (appleDisk256);
-      }
-      else if (debug)
-        System.out.println ("  unknown checksum : " + checksum);
-
-      //      else if (checksum == 1212926910L || checksum == 1365043894L
-      //          || checksum == 2128073918L)
-      //        disk = checkCPMDisk (file);
-
-      //      System.out.println (checksum);
+      if (debug)
+        System.out.println ("  known " + hint + " checksum : " + checksum);
 
+      disk = checkKnownFormat (file, image, hint, suffix);
       if (disk != null)
       {
         if (compressed)
           disk.setOriginalPath (originalPath);
         return disk;
       }
-
-      // empty boot sector
-      if (checksum != 227968344L && false)
-        System.out.println ("Unknown checksum : " + checksum + " : " + path);
     }
+    else if (debug)
+      System.out.println ("  unknown checksum : " + checksum);
+
+    // run every floppy format check at once, each on its own view of the image
+    Map<Format, DiskProbe> probes =
+        DiskProbe.probe (file, image, 35, Format.DOS, Format.PRODOS, Format.PASCAL,
+            Format.CPM, Format.INFOCOM);
 
     if (debug)
-      System.out.println ("  checksum no help");
+      for (DiskProbe probe : probes.values ())
+        System.out.println ("  probe : " + probe);
+
     if (debug)
       System.out.println ("  Suffix : " + suffix);
 
+    disk = resolveBySuffix (probes, suffix);
+
+    if (disk == null)
+      disk = resolve (probes.get (Format.PASCAL));
+
+    if (disk == null)
+      disk = resolve (probes.get (Format.CPM));
+
+    if (disk == null)
+    {
+      disk2 = resolve (probes.get (Format.INFOCOM));
+      if (disk2 != null)
+        disk = disk2;
+    }
+
+    if (disk == null)
+      disk = new DataDisk (new AppleDisk (file, image, 35, 16, 0));
+    else
+      BootSignatures.learn (checksum, disk);
+
+    if (debug)
+      System.out.println (
+          "Factory creating disk : " + disk.getDisk ().getFile ().getAbsolutePath ());
+
+    if (disk != null && compressed)
+      disk.setOriginalPath (originalPath);
+
+    return disk;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static byte[] readFirstEntry (File file) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    try (ZipFile zipFile = new ZipFile (file))
+    {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries ();
+
+      while (entries.hasMoreElements ())        // loop until first valid name
+      {
+        ZipEntry entry = entries.nextElement ();
+        if (Utility.validFileType (entry.getName ()))
+          try (InputStream stream = zipFile.getInputStream (entry))
+          {
+            return stream.readAllBytes ();
+          }
+      }
+    }
+
+    return null;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static byte[] readFirstEntry (byte[] buffer) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    try (ZipInputStream in = new ZipInputStream (new ByteArrayInputStream (buffer)))
+    {
+      ZipEntry entry;
+      while ((entry = in.getNextEntry ()) != null)
+        if (Utility.validFileType (entry.getName ()))
+          return in.readAllBytes ();
+    }
+
+    return null;
+  }
+
+  // DOS and ProDOS in the order the suffix suggests, with any second format on a DOS
+  // disk added as a DualDosDisk
+  // ---------------------------------------------------------------------------------//
+  private static FormattedDisk resolveBySuffix (Map<Format, DiskProbe> probes,
+      String suffix)
+  // ---------------------------------------------------------------------------------//
+  {
+    FormattedDisk disk = null;
+    FormattedDisk disk2 = null;
+
     if (suffix.equals ("dsk") || suffix.equals ("do"))
     {
-      disk = checkDos (appleDisk256);
+      disk = resolve (probes.get (Format.DOS));
       if (disk == null)
-        disk = checkProdos (appleDisk512);
+        disk = resolve (probes.get (Format.PRODOS));
       else
       {
         if (debug)
           System.out.println ("Checking DualDos disk");
 
-        disk2 = checkProdos (appleDisk512);
+        disk2 = resolve (probes.get (Format.PRODOS));
         if (disk2 != null)
           disk = new DualDosDisk (disk, disk2);
 
-        AppleDisk appleDisk = new AppleDisk (file, 35, 16);
-        disk2 = checkCPMDisk (appleDisk);
+        disk2 = resolve (probes.get (Format.CPM));
         if (disk2 != null)
           disk = new DualDosDisk (disk, disk2);
       }
     }
     else if (suffix.equals ("po"))
     {
-      disk = checkProdos (appleDisk512);
+      disk = resolve (probes.get (Format.PRODOS));
       if (disk == null)
-        disk = checkDos (appleDisk256);
+        disk = resolve (probes.get (Format.DOS));
     }
 
-    if (disk == null)
-      disk = checkPascalDisk (appleDisk512);
+    return disk;
+  }
 
-    if (disk == null)
-      disk = checkCPMDisk (appleDisk256);
+  // ---------------------------------------------------------------------------------//
+  private static FormattedDisk checkKnownFormat (File file, ByteBuffer image,
+      FormatHint hint, String suffix)
+  // ---------------------------------------------------------------------------------//
+  {
+    Map<Format, DiskProbe> probes;
+    FormattedDisk disk = null;
+    FormattedDisk disk2 = null;
 
-    if (disk == null)
-    {
-      disk2 = checkInfocomDisk (appleDisk256);
-      if (disk2 != null)
-        disk = disk2;
+    switch (hint)
+    {
+      case DOS:
+        // a DOS boot sector can still be a hybrid, so check the other halves too
+        probes = DiskProbe.probe (file, image, 35, Format.DOS, Format.PRODOS,
+            Format.CPM);
+        disk = resolveBySuffix (probes, suffix);
+        if (disk == null)
+          disk = resolve (probes.get (Format.DOS));
+        break;
+
+      case PRODOS:
+        probes = DiskProbe.probe (file, image, 35, Format.PRODOS, Format.DOS);
+        disk = resolve (probes.get (Format.PRODOS));
+        disk2 = resolve (probes.get (Format.DOS));
+        if (disk2 != null && disk != null)
+        {
+          if (debug)
+            System.out.println ("  --> Dual prodos/dos 2");
+          disk = new DualDosDisk (disk, disk2);
+        }
+        break;
+
+      case PASCAL:
+        probes = DiskProbe.probe (file, image, 35, Format.PASCAL, Format.DOS);
+        disk = resolve (probes.get (Format.PASCAL));
+        disk2 = resolve (probes.get (Format.DOS));
+        if (disk2 != null && disk != null)
+          disk = new DualDosDisk (disk, disk2);
+        break;
+
+      case CPM:
+        probes = DiskProbe.probe (file, image, 35, Format.CPM);
+        disk = resolve (probes.get (Format.CPM));
+        break;
+
+      case INFOCOM:
+        probes = DiskProbe.probe (file, image, 35, Format.INFOCOM);
+        disk = resolve (probes.get (Format.INFOCOM));
+        break;
+
+      default:
+        break;
     }
 
-    if (disk == null)
-      disk = new DataDisk (appleDisk256);
+    if (disk == null && debug)
+      System.out.println ("  checksum no help");
+
+    return disk;
+  }
+
+  // Turns a successful probe into a disk. Each probe has its own AppleDisk, so this
+  // must only be called once per probe.
+  // ---------------------------------------------------------------------------------//
+  private static FormattedDisk resolve (DiskProbe probe)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (probe == null || !probe.matches ())
+      return null;
 
     if (debug)
-      System.out.println (
-          "Factory creating disk : " + disk.getDisk ().getFile ().getAbsolutePath ());
+      System.out.println ("  --> " + probe.format);
 
-    if (disk != null && compressed)
-      disk.setOriginalPath (originalPath);
+    try
+    {
+      switch (probe.format)
+      {
+        case DOS:
+          return new DosDisk (probe.disk);
+        case PRODOS:
+          return new ProdosDisk (probe.disk);
+        case PASCAL:
+          return createPascalDisk (probe.disk);
+        case CPM:
+          return new CPMDisk (probe.disk);
+        case INFOCOM:
+          return new InfocomDisk (probe.disk);
+      }
+    }
+    catch (Exception e)
+    {
+      e.printStackTrace ();
+    }
 
-    return disk;
+    return null;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -594,35 +701,38 @@ public class DiskFactory
   }
 
   // ---------------------------------------------------------------------------------//
-  private static FormattedDisk checkHardDisk (File file)
+  private static FormattedDisk checkHardDisk (File file, ByteBuffer image,
+      ImageLoader loader)
   // ---------------------------------------------------------------------------------//
   {
+    long length = image.limit ();
+
     if (debug)
     {
       System.out.println ("\nChecking Prodos hard disk");
-      System.out.printf ("Total blocks : %f%n", (float) file.length () / 512);
-      System.out.printf ("Total tracks : %f%n", (float) file.length () / 4096);
-      System.out.printf ("File length  : %d%n", file.length ());
+      System.out.printf ("Total blocks : %f%n", (float) length / 512);
+      System.out.printf ("Total tracks : %f%n", (float) length / 4096);
+      System.out.printf ("File length  : %d%n", length);
       System.out.println ();
     }
 
     // assumes a sector is 512 bytes
-    if ((file.length () % 512) != 0)
+    if ((length % 512) != 0)
     {
       if (debug)
-        System.out.printf ("file length not divisible by 512 : %,d%n%n", file.length ());
+        System.out.printf ("file length not divisible by 512 : %,d%n%n", length);
       return null;
     }
 
     try
     {
       // extend the file if necessary
-      int tracks = (int) (file.length () - 1) / 4096 + 1;
-      if (tracks * 4096 != file.length ())
+      int tracks = (int) (length - 1) / 4096 + 1;
+      if (tracks * 4096 != length)
       {
         System.out.println ("*** extended ***");     // System Addons.hdv
       }
-      AppleDisk disk = new AppleDisk (file, tracks, 8);
+      AppleDisk disk = new AppleDisk (file, image, loader, tracks, 8, 0);
       if (ProdosDisk.isCorrectFormat (disk))
       {
         if (debug)
@@ -682,7 +792,8 @@ public class DiskFactory
   */
 
   // ---------------------------------------------------------------------------------//
-  private static FormattedDisk check2mgDisk (File file)
+  private static FormattedDisk check2mgDisk (File file, ByteBuffer image,
+      ImageLoader loader)
   // ---------------------------------------------------------------------------------//
   {
     if (debug)
@@ -690,13 +801,13 @@ public class DiskFactory
 
     try
     {
-      AppleDisk disk = new AppleDisk (file, 0, 0);
+      AppleDisk disk = new AppleDisk (file, image, loader, 0, 0, 0);
       if (disk.getTotalBlocks () > 0)
       {
         if (ProdosDisk.isCorrectFormat (disk))
           return new ProdosDisk (disk);
 
-        if (file.length () == 143424)
+        if (image.limit () == 143424)
         {
           disk.switchToDos ();                    // switch sector size
           if (DosDisk.isCorrectFormat (disk))
@@ -715,7 +826,7 @@ public class DiskFactory
   }
 
   // ---------------------------------------------------------------------------------//
-  private static FormattedDisk checkDiskCopyDisk (File file)
+  private static FormattedDisk checkDiskCopyDisk (File file, ByteBuffer image)
   // ---------------------------------------------------------------------------------//
   {
     if (debug)
@@ -723,7 +834,7 @@ public class DiskFactory
 
     try
     {
-      AppleDisk disk = new AppleDisk (file, 0, 0);
+      AppleDisk disk = new AppleDisk (file, image, 0, 0, 0);
       if (disk.getTotalBlocks () > 0)
       {
         if (ProdosDisk.isCorrectFormat (disk))
@@ -742,17 +853,11 @@ public class DiskFactory
   }
 
   // ---------------------------------------------------------------------------------//
-  private static FormattedDisk checkPascalDisk (AppleDisk disk)
+  private static FormattedDisk createPascalDisk (AppleDisk disk)
   // ---------------------------------------------------------------------------------//
   {
-    if (debug)
-      System.out.println ("Checking Pascal disk");
-
     File file = disk.getFile ();
 
-    if (!PascalDisk.isCorrectFormat (disk, debug))
-      return null;
-
     if (debug)
       System.out.println ("Pascal disk OK - Checking Wizardry disk");
 
@@ -763,7 +868,7 @@ public class DiskFactory
       System.out.println ("Not a Wizardry 1-3 disk");
 
     // check for compressed disk
-    if (file.getName ().endsWith (".tmp"))
+    if (!file.isFile () || isCompressed (file.getName ()))
       return new PascalDisk (disk);       // complicated joining up compressed disks
 
     if (Wizardry4BootDisk.isWizardryIVorV (disk, debug))
@@ -799,6 +904,21 @@ public class DiskFactory
     return pascalDisk;
   }
 
+  // ---------------------------------------------------------------------------------//
+  private static boolean isHardDiskSuffix (String suffix)
+  // ---------------------------------------------------------------------------------//
+  {
+    return suffix.equals ("hdv") || suffix.equals ("2mg") || suffix.equals ("po");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static boolean isCompressed (String fileName)
+  // ---------------------------------------------------------------------------------//
+  {
+    String name = fileName.toLowerCase ();
+    return name.endsWith (".gz") || name.endsWith (".zip") || name.endsWith (".sdk");
+  }
+
   // ---------------------------------------------------------------------------------//
   private static boolean collectDataDisks (String fileName, int dotPos, AppleDisk[] disks)
   // ---------------------------------------------------------------------------------//
@@ -822,40 +942,4 @@ public class DiskFactory
 
     return true;
   }
-
-  // ---------------------------------------------------------------------------------//
-  private static InfocomDisk checkInfocomDisk (AppleDisk disk)
-  // ---------------------------------------------------------------------------------//
-  {
-    if (debug)
-      System.out.println ("Checking Infocom disk");
-
-    if (InfocomDisk.isCorrectFormat (disk))
-    {
-      if (debug)
-        System.out.println ("  --> INFOCOM");
-      return new InfocomDisk (disk);
-    }
-
-    if (debug)
-      System.out.println ("Not an InfocomDisk disk");
-
-    return null;
-  }
-
-  // ---------------------------------------------------------------------------------//
-  private static CPMDisk checkCPMDisk (AppleDisk disk)
-  // ---------------------------------------------------------------------------------//
-  {
-    if (debug)
-      System.out.println ("Checking CPM disk");
-
-    if (CPMDisk.isCorrectFormat (disk))
-      return new CPMDisk (disk);
-
-    if (debug)
-      System.out.println ("Not a CPM disk");
-
-    return null;
-  }
-}
\ No newline at end of file
+}
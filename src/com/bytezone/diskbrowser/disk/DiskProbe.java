@@ -0,0 +1,176 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.bytezone.diskbrowser.cpm.CPMDisk;
+import com.bytezone.diskbrowser.dos.DosDisk;
+import com.bytezone.diskbrowser.infocom.InfocomDisk;
+import com.bytezone.diskbrowser.pascal.PascalDisk;
+import com.bytezone.diskbrowser.prodos.ProdosDisk;
+
+// Runs the floppy format checks side by side. Each probe gets its own AppleDisk view
+// of the shared image, because the checks change the interleave of the disk they are
+// given. Building the FormattedDisk from a successful probe is left to DiskFactory,
+// which decides between competing formats.
+// -----------------------------------------------------------------------------------//
+class DiskProbe
+// -----------------------------------------------------------------------------------//
+{
+  static final int NO_MATCH = 0;
+  static final int MATCH = 100;
+
+  private static final boolean debug = false;
+  private static final ExecutorService executor = Executors.newFixedThreadPool (
+      Math.max (2, Runtime.getRuntime ().availableProcessors ()), runnable ->
+      {
+        Thread thread = new Thread (runnable, "DiskProbe");
+        thread.setDaemon (true);
+        return thread;
+      });
+
+  enum Format
+  {
+    DOS (16), PRODOS (8), PASCAL (8), CPM (16), INFOCOM (16);
+
+    final int sectors;
+
+    Format (int sectors)
+    {
+      this.sectors = sectors;
+    }
+  }
+
+  final Format format;
+  final AppleDisk disk;
+  final int confidence;
+
+  // ---------------------------------------------------------------------------------//
+  private DiskProbe (Format format, AppleDisk disk, int confidence)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.format = format;
+    this.disk = disk;
+    this.confidence = confidence;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  boolean matches ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return confidence > NO_MATCH;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static Map<Format, DiskProbe> probe (File file, ByteBuffer image, int tracks,
+      Format... formats)
+  // ---------------------------------------------------------------------------------//
+  {
+    Map<Format, Future<DiskProbe>> futures = new EnumMap<> (Format.class);
+    for (Format format : formats)
+      futures.put (format, executor.submit (new Task (file, image, tracks, format)));
+
+    Map<Format, DiskProbe> probes = new EnumMap<> (Format.class);
+    for (Map.Entry<Format, Future<DiskProbe>> entry : futures.entrySet ())
+    {
+      try
+      {
+        probes.put (entry.getKey (), entry.getValue ().get ());
+      }
+      catch (InterruptedException | ExecutionException e)
+      {
+        if (debug)
+          System.out.println ("Probe failed : " + entry.getKey () + " : " + e);
+        probes.put (entry.getKey (), new DiskProbe (entry.getKey (), null, NO_MATCH));
+      }
+    }
+
+    return probes;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static int check (Format format, AppleDisk disk)
+  // ---------------------------------------------------------------------------------//
+  {
+    boolean correct;
+
+    switch (format)
+    {
+      case DOS:
+        correct = DosDisk.isCorrectFormat (disk);
+        break;
+      case PRODOS:
+        correct = ProdosDisk.isCorrectFormat (disk);
+        break;
+      case PASCAL:
+        correct = PascalDisk.isCorrectFormat (disk, debug);
+        break;
+      case CPM:
+        correct = CPMDisk.isCorrectFormat (disk);
+        break;
+      case INFOCOM:
+        correct = InfocomDisk.isCorrectFormat (disk);
+        break;
+      default:
+        correct = false;
+    }
+
+    return correct ? MATCH : NO_MATCH;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return String.format ("%-8s %3d", format, confidence);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static class Task implements Callable<DiskProbe>
+  // ---------------------------------------------------------------------------------//
+  {
+    private final File file;
+    private final ByteBuffer image;
+    private final int tracks;
+    private final Format format;
+
+    // -------------------------------------------------------------------------------//
+    Task (File file, ByteBuffer image, int tracks, Format format)
+    // -------------------------------------------------------------------------------//
+    {
+      this.file = file;
+      this.image = image;
+      this.tracks = tracks;
+      this.format = format;
+    }
+
+    // -------------------------------------------------------------------------------//
+    @Override
+    public DiskProbe call () throws Exception
+    // -------------------------------------------------------------------------------//
+    {
+      AppleDisk disk = new AppleDisk (file, image, tracks, format.sectors, 0);
+      int confidence = NO_MATCH;
+
+      try
+      {
+        confidence = check (format, disk);
+      }
+      catch (Exception e)
+      {
+        if (debug)
+          System.out.println ("Probe failed : " + format + " : " + e);
+      }
+
+      return new DiskProbe (format, disk, confidence);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.disk;
 
 import java.awt.Dimension;
+import java.awt.event.ActionListener;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -184,6 +185,24 @@ public class DualDosDisk implements FormattedDisk
         this);
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void addActionListener (ActionListener actionListener)
+  // ---------------------------------------------------------------------------------//
+  {
+    disks[0].addActionListener (actionListener);
+    disks[1].addActionListener (actionListener);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void removeActionListener (ActionListener actionListener)
+  // ---------------------------------------------------------------------------------//
+  {
+    disks[0].removeActionListener (actionListener);
+    disks[1].removeActionListener (actionListener);
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public AppleFileSource getFile (String uniqueName)
@@ -192,6 +211,22 @@ public class DualDosDisk implements FormattedDisk
     return disks[currentDisk].getFile (uniqueName);
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void loadPath (String uniqueName)
+  // ---------------------------------------------------------------------------------//
+  {
+    disks[currentDisk].loadPath (uniqueName);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isCatalogComplete ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return disks[currentDisk].isCatalogComplete ();
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public int clearOrphans ()
@@ -328,6 +363,14 @@ public class DualDosDisk implements FormattedDisk
     return disks[currentDisk].getSectorFilename (da);
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isSectorCrossLinked (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    return disks[currentDisk].isSectorCrossLinked (da);
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public String getName ()
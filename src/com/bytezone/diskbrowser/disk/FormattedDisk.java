@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.disk;
 
 import java.awt.Dimension;
+import java.awt.event.ActionListener;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -36,6 +37,8 @@ public interface FormattedDisk
 
   public String getSectorFilename (DiskAddress da);
 
+  public boolean isSectorCrossLinked (DiskAddress da);    // owned by more than one file
+
   public List<SectorType> getSectorTypeList ();
 
   public Disk getDisk ();
@@ -48,6 +51,9 @@ public interface FormattedDisk
 
   public AppleFileSource getFile (String uniqueName);
 
+  // adds any unread directories on the path to the catalog tree (event thread only)
+  public void loadPath (String uniqueName);
+
   public int clearOrphans ();
 
   public void setSectorFree (int block, boolean free);
@@ -74,6 +80,14 @@ public interface FormattedDisk
 
   public boolean isTempDisk ();
 
+  // false while a background pass is still reading the catalog
+  public boolean isCatalogComplete ();
+
+  // notified when the sector types change after the disk has been opened
+  public void addActionListener (ActionListener actionListener);
+
+  public void removeActionListener (ActionListener actionListener);
+
   // VTOC flags sector as free, but it is in use by a file
   public int falsePositiveBlocks ();
 
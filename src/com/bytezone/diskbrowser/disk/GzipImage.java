@@ -0,0 +1,186 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+import com.bytezone.diskbrowser.utilities.GzipIndex;
+
+// A gzipped hard disk image that is inflated a span at a time as its blocks are read.
+// The first time a file is opened it is inflated in full to build the index, which is
+// kept in a cache folder. After that, opening the disk only inflates the spans that
+// hold the catalog. The inflated image lives in a mapped temporary file rather than
+// on the heap, so the spans that are never read take up no memory.
+// -----------------------------------------------------------------------------------//
+class GzipImage implements ImageLoader
+// -----------------------------------------------------------------------------------//
+{
+  static final int MIN_SIZE = 0x100000;         // smaller images are inflated in full
+  static final int MAX_SIZE = 0x10000000;       // far larger than any Apple II volume
+  private static final int MAX_RATIO = 1032;    // the most deflate can compress by
+  private static final Path CACHE =
+      Paths.get (System.getProperty ("user.home"), ".diskbrowser", "gzindex");
+  private static final boolean debug = false;
+
+  private final GzipIndex index;
+  private final ByteBuffer image;
+  private final BitSet loaded;                  // spans already inflated
+
+  // ---------------------------------------------------------------------------------//
+  private GzipImage (GzipIndex index, ByteBuffer image, boolean complete)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.index = index;
+    this.image = image;
+    this.loaded = new BitSet (index.getTotalSpans ());
+
+    if (complete)
+      loaded.set (0, index.getTotalSpans ());
+  }
+
+  // Returns null if the file is too small to be worth indexing, or can't be indexed
+  // (a corrupt file, an impossible size, or one with several gzip members).
+  // ---------------------------------------------------------------------------------//
+  static GzipImage open (File file)
+  // ---------------------------------------------------------------------------------//
+  {
+    try (FileChannel channel = FileChannel.open (file.toPath (), StandardOpenOption.READ))
+    {
+      long length = channel.size ();
+      if (length < 18 || length > Integer.MAX_VALUE)
+        return null;
+
+      ByteBuffer input = channel.map (FileChannel.MapMode.READ_ONLY, 0, length);
+      long size = GzipIndex.getSize (input);
+      if (size < MIN_SIZE)
+        return null;
+
+      // ISIZE is only a claim - don't reserve space for it until it looks possible
+      if (size > MAX_SIZE || size > length * MAX_RATIO)
+      {
+        if (debug)
+          System.out.printf ("Invalid gzip size : %s : %,d%n", file.getName (), size);
+        return null;
+      }
+
+      Path indexPath = getIndexPath (file);
+      GzipIndex index = GzipIndex.load (input, indexPath);
+      if (index != null)
+      {
+        if (debug)
+          System.out.println ("Using gzip index : " + indexPath);
+        return new GzipImage (index, createImage ((int) size), false);
+      }
+
+      ByteBuffer image = createImage ((int) size);
+      index = GzipIndex.build (input, image);
+      try
+      {
+        index.save (indexPath);
+      }
+      catch (IOException e)
+      {
+        if (debug)
+          System.out.println ("Unable to save gzip index : " + e.getMessage ());
+      }
+
+      return new GzipImage (index, image, true);
+    }
+    catch (IOException e)
+    {
+      if (debug)
+        System.out.println ("Not indexed : " + file.getName () + " : " + e.getMessage ());
+      return null;
+    }
+  }
+
+  // The temporary file is sparse and is deleted as soon as it is mapped, the mapping
+  // keeps it alive until the image is no longer used.
+  // ---------------------------------------------------------------------------------//
+  private static ByteBuffer createImage (int size) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    Path path = Files.createTempFile ("gzip", ".img");
+    try (FileChannel channel = FileChannel.open (path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE))
+    {
+      return channel.map (FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static Path getIndexPath (File file)
+  // ---------------------------------------------------------------------------------//
+  {
+    String path = file.getAbsolutePath ();
+    return CACHE.resolve (
+        String.format ("%s-%08X.idx", file.getName (), path.hashCode ()));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  ByteBuffer getImage ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return image.asReadOnlyBuffer ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  synchronized boolean isComplete ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return loaded.cardinality () == index.getTotalSpans ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public synchronized void load (int offset, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (length <= 0)
+      return;
+
+    int last = index.getSpan (Math.min (offset + length, image.limit ()) - 1);
+    for (int span = index.getSpan (offset); span <= last; span++)
+      if (!loaded.get (span))
+      {
+        try
+        {
+          index.inflate (span, image);
+        }
+        catch (IOException e)
+        {
+          throw new UncheckedIOException (e);
+        }
+        loaded.set (span);
+      }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public synchronized boolean isLoaded (int offset, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (length <= 0)
+      return true;
+
+    int last = index.getSpan (Math.min (offset + length, image.limit ()) - 1);
+    int first = index.getSpan (offset);
+    return loaded.nextClearBit (first) > last;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return String.format ("Gzip spans........... %d of %d inflated",
+        loaded.cardinality (), index.getTotalSpans ());
+  }
+}
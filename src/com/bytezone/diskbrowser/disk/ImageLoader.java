@@ -0,0 +1,12 @@
+package com.bytezone.diskbrowser.disk;
+
+// Fills in a disk image that is only read as far as it is needed. Offsets are in
+// bytes from the start of the image.
+// -----------------------------------------------------------------------------------//
+public interface ImageLoader
+// -----------------------------------------------------------------------------------//
+{
+  public void load (int offset, int length);
+
+  public boolean isLoaded (int offset, int length);
+}
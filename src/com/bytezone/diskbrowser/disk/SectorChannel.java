@@ -0,0 +1,161 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.List;
+
+// A read-only view of a file's sectors. Nothing is read until the channel is, and then
+// only the sectors that the read touches, so a large file can be scanned or extracted
+// without holding all of it. A null address, or block 0 without its zero flag, is a
+// gap in a sparse file and reads as zeros, the same as Disk.readBlocks ().
+// -----------------------------------------------------------------------------------//
+public class SectorChannel implements SeekableByteChannel
+// -----------------------------------------------------------------------------------//
+{
+  private final Disk disk;
+  private final List<DiskAddress> sectors;
+  private final int sectorSize;
+  private final long size;
+
+  private long position;
+  private boolean open = true;
+
+  // ---------------------------------------------------------------------------------//
+  public SectorChannel (Disk disk, List<DiskAddress> sectors)
+  // ---------------------------------------------------------------------------------//
+  {
+    this (disk, sectors, (long) sectors.size () * disk.getBlockSize ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public SectorChannel (Disk disk, List<DiskAddress> sectors, long size)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.disk = disk;
+    this.sectors = sectors;
+    this.sectorSize = disk.getBlockSize ();
+    this.size = Math.max (0, Math.min (size, (long) sectors.size () * sectorSize));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int read (ByteBuffer dst) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    checkOpen ();
+
+    if (position >= size)
+      return -1;
+
+    int total = 0;
+    while (dst.hasRemaining () && position < size)
+    {
+      int index = (int) (position / sectorSize);
+      int offset = (int) (position % sectorSize);
+      int length = (int) Math.min (sectorSize - offset, size - position);
+      length = Math.min (length, dst.remaining ());
+
+      DiskAddress da = sectors.get (index);
+      if (isGap (da))
+        for (int i = 0; i < length; i++)
+          dst.put ((byte) 0);
+      else
+      {
+        ByteBuffer view = disk.readBlockView (da);
+        view.position (view.position () + offset);
+        view.limit (view.position () + length);
+        dst.put (view);
+      }
+
+      position += length;
+      total += length;
+    }
+
+    return total;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private boolean isGap (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (da == null)
+      return true;
+    if (da.getBlockNo () > 0)
+      return false;
+    return !(da instanceof AppleDiskAddress && ((AppleDiskAddress) da).zeroFlag ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int write (ByteBuffer src) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new NonWritableChannelException ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public long position () throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    checkOpen ();
+    return position;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public SeekableByteChannel position (long newPosition) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    checkOpen ();
+    if (newPosition < 0)
+      throw new IllegalArgumentException ("Negative position : " + newPosition);
+
+    position = newPosition;
+    return this;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public long size () throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    checkOpen ();
+    return size;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public SeekableByteChannel truncate (long size) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new NonWritableChannelException ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isOpen ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return open;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void close () throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    open = false;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void checkOpen () throws ClosedChannelException
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!open)
+      throw new ClosedChannelException ();
+  }
+}
@@ -49,6 +49,8 @@ public class SectorList extends AbstractFile
       String owner = formattedDisk.getSectorFilename (da);
       if (owner == null)
         owner = "";
+      else if (formattedDisk.isSectorCrossLinked (da))
+        owner += " (cross-linked)";
       text.append (
           String.format (" %04X  %-18s  %s%n", da.getBlockNo (), sectorType.name, owner));
     }
@@ -0,0 +1,98 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Sectors that have been written to a disk, kept apart from the read-only image that
+// the disk is a view of. Sectors are held in offset order, so the edits can be merged
+// with the image in a single pass when it is saved.
+// -----------------------------------------------------------------------------------//
+class SectorOverlay
+// -----------------------------------------------------------------------------------//
+{
+  static final int SECTOR_SIZE = 256;
+
+  private final ConcurrentSkipListMap<Integer, byte[]> sectors =
+      new ConcurrentSkipListMap<> ();
+
+  // ---------------------------------------------------------------------------------//
+  void put (int offset, byte[] buffer, int bufferOffset)
+  // ---------------------------------------------------------------------------------//
+  {
+    // a new array each time, so that a sector being read is never half written
+    sectors.put (offset,
+        Arrays.copyOfRange (buffer, bufferOffset, bufferOffset + SECTOR_SIZE));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  byte[] get (int offset)
+  // ---------------------------------------------------------------------------------//
+  {
+    return sectors.get (offset);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  boolean isEmpty ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return sectors.isEmpty ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int size ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return sectors.size ();
+  }
+
+  // Writes the image with every modified sector in place. Sector offsets are relative
+  // to the disk, which starts at skip in the image. A short image is padded to the
+  // disk's size, so a sector that lies wholly or partly beyond its end extends the
+  // output with zeros up to the sector.
+  // ---------------------------------------------------------------------------------//
+  void write (ByteBuffer image, int skip, WritableByteChannel channel)
+      throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    ByteBuffer source = image.duplicate ();
+    int ptr = 0;
+
+    for (Map.Entry<Integer, byte[]> entry : sectors.entrySet ())
+    {
+      int offset = skip + entry.getKey ();
+
+      int end = Math.min (offset, image.limit ());
+      if (ptr < end)
+      {
+        source.limit (end).position (ptr);
+        write (source, channel);
+        ptr = end;
+      }
+
+      if (ptr < offset)                               // padding beyond the file
+        write (ByteBuffer.allocate (offset - ptr), channel);
+
+      write (ByteBuffer.wrap (entry.getValue ()), channel);
+      ptr = offset + SECTOR_SIZE;
+    }
+
+    if (ptr < image.limit ())
+    {
+      source.limit (image.limit ()).position (ptr);
+      write (source, channel);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static void write (ByteBuffer buffer, WritableByteChannel channel)
+      throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    while (buffer.hasRemaining ())
+      channel.write (buffer);
+  }
+}
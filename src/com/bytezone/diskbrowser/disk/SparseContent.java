@@ -0,0 +1,206 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// The contents of a file that may have holes. Only the allocated blocks are kept, as
+// runs of consecutive logical blocks, and everything else reads as zeros. A sparse
+// database can claim megabytes of EOF while owning a handful of blocks, so nothing
+// here allocates the logical length. Block 0 and NO_BLOCK are holes, as ProDOS never
+// stores file data in block 0.
+// -----------------------------------------------------------------------------------//
+public class SparseContent
+// -----------------------------------------------------------------------------------//
+{
+  private final Disk disk;
+  private final int blockSize;
+  private final int length;
+  private final List<Extent> extents = new ArrayList<> ();
+  private int allocatedBlocks;
+
+  // ---------------------------------------------------------------------------------//
+  public SparseContent (Disk disk, BlockList blocks, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.disk = disk;
+    this.blockSize = disk.getBlockSize ();
+    this.length = length;
+
+    Extent extent = null;
+    for (int i = 0; i < blocks.size (); i++)
+    {
+      int block = blocks.get (i);
+      if (block <= 0)                                   // a hole ends the run
+      {
+        extent = null;
+        continue;
+      }
+      if (extent == null)
+      {
+        extent = new Extent (i);
+        extents.add (extent);
+      }
+      extent.blocks.add (block);
+      allocatedBlocks++;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int length ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return length;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getBlockSize ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return blockSize;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getAllocatedBytes ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return allocatedBlocks * blockSize;
+  }
+
+  // true if any part of the logical length is not backed by a block
+  // ---------------------------------------------------------------------------------//
+  public boolean isSparse ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int position = 0;
+    for (Extent extent : extents)
+    {
+      if (extent.getOffset () > position && position < length)
+        return true;
+      position = extent.getOffset () + extent.getLength ();
+    }
+    return position < length;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public List<Extent> getExtents ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return Collections.unmodifiableList (extents);
+  }
+
+  // Reads one run of allocated blocks. The last run may extend past the EOF.
+  // ---------------------------------------------------------------------------------//
+  public byte[] read (Extent extent)
+  // ---------------------------------------------------------------------------------//
+  {
+    return disk.readBlocks (extent.blocks.getDiskAddresses (disk));
+  }
+
+  // Copies up to count bytes starting at the logical position, with holes read as
+  // zeros. Returns the number of bytes copied, or -1 at the EOF.
+  // ---------------------------------------------------------------------------------//
+  public int read (long position, byte[] buffer, int offset, int count)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (position >= length)
+      return -1;
+
+    count = (int) Math.min (count, length - position);
+    int copied = 0;
+
+    while (copied < count)
+    {
+      int logicalBlock = (int) (position / blockSize);
+      int blockOffset = (int) (position % blockSize);
+      int size = Math.min (blockSize - blockOffset, count - copied);
+
+      int block = getBlock (logicalBlock);
+      DiskAddress da = block > 0 ? disk.getDiskAddress (block) : null;
+      if (da == null)
+        Arrays.fill (buffer, offset + copied, offset + copied + size, (byte) 0);
+      else
+      {
+        ByteBuffer view = disk.readBlockView (da);
+        view.position (view.position () + blockOffset);
+        view.get (buffer, offset + copied, size);
+      }
+
+      copied += size;
+      position += size;
+    }
+
+    return copied;
+  }
+
+  // returns the disk block holding the logical block, or NO_BLOCK if it is a hole
+  // ---------------------------------------------------------------------------------//
+  public int getBlock (int logicalBlock)
+  // ---------------------------------------------------------------------------------//
+  {
+    int lo = 0;
+    int hi = extents.size () - 1;
+
+    while (lo <= hi)
+    {
+      int mid = (lo + hi) >>> 1;
+      Extent extent = extents.get (mid);
+      if (logicalBlock < extent.firstBlock)
+        hi = mid - 1;
+      else if (logicalBlock >= extent.firstBlock + extent.blocks.size ())
+        lo = mid + 1;
+      else
+        return extent.blocks.get (logicalBlock - extent.firstBlock);
+    }
+
+    return BlockList.NO_BLOCK;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return String.format ("Length %,d  allocated %,d  extents %,d", length,
+        getAllocatedBytes (), extents.size ());
+  }
+
+  // A run of allocated blocks, starting at a logical block of the file.
+  // ---------------------------------------------------------------------------------//
+  public class Extent
+  // ---------------------------------------------------------------------------------//
+  {
+    public final int firstBlock;
+    private final BlockList blocks = new BlockList ();
+
+    // -------------------------------------------------------------------------------//
+    Extent (int firstBlock)
+    // -------------------------------------------------------------------------------//
+    {
+      this.firstBlock = firstBlock;
+    }
+
+    // -------------------------------------------------------------------------------//
+    public int getOffset ()
+    // -------------------------------------------------------------------------------//
+    {
+      return firstBlock * blockSize;
+    }
+
+    // -------------------------------------------------------------------------------//
+    public int getLength ()
+    // -------------------------------------------------------------------------------//
+    {
+      return blocks.size () * blockSize;
+    }
+
+    // -------------------------------------------------------------------------------//
+    public int getTotalBlocks ()
+    // -------------------------------------------------------------------------------//
+    {
+      return blocks.size ();
+    }
+  }
+}
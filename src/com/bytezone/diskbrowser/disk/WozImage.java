@@ -0,0 +1,57 @@
+package com.bytezone.diskbrowser.disk;
+
+import com.bytezone.diskbrowser.nib.WozFile;
+
+// A 5.25" WOZ disk whose tracks are decoded from their bit streams as they are read,
+// so the format checks only pay for track 0 and the catalog track.
+// -----------------------------------------------------------------------------------//
+class WozImage implements ImageLoader
+// -----------------------------------------------------------------------------------//
+{
+  private final WozFile wozFile;
+  private final int trackSize;
+
+  // ---------------------------------------------------------------------------------//
+  WozImage (WozFile wozFile)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.wozFile = wozFile;
+    trackSize = wozFile.getSectorsPerTrack () * 256;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void load (int offset, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (length <= 0)
+      return;
+
+    wozFile.loadTracks (offset / trackSize, (offset + length - 1) / trackSize);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isLoaded (int offset, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (length <= 0)
+      return true;
+
+    int last = (offset + length - 1) / trackSize;
+    for (int track = offset / trackSize; track <= last; track++)
+      if (!wozFile.isTrackLoaded (track))
+        return false;
+
+    return true;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return String.format ("WOZ tracks........... %d of %d decoded",
+        wozFile.getTracksLoaded (), wozFile.getTracks ());
+  }
+}
@@ -0,0 +1,73 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Inflated zip entries, most recently used last. Switching between the disks of a
+// multi-disk archive reuses the bytes that were already inflated, and the total size
+// is capped so that browsing a folder of large archives doesn't hold them all.
+// -----------------------------------------------------------------------------------//
+class ZipEntryCache
+// -----------------------------------------------------------------------------------//
+{
+  private static final int MAX_BYTES = 32 * 1024 * 1024;
+  private static final int MAX_ENTRIES = 64;
+
+  private static final Map<String, byte[]> entries = new LinkedHashMap<> (16, 0.75f, true);
+  private static long totalBytes;
+
+  // ---------------------------------------------------------------------------------//
+  private ZipEntryCache ()
+  // ---------------------------------------------------------------------------------//
+  {
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static synchronized byte[] get (File zipFile, String entryName) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    String key = zipFile.getAbsolutePath () + File.separator + entryName;
+
+    byte[] buffer = entries.get (key);
+    if (buffer != null)
+      return buffer;
+
+    try (ZipFile zip = new ZipFile (zipFile))
+    {
+      ZipEntry entry = zip.getEntry (entryName);
+      if (entry == null)
+        throw new IOException ("No such entry : " + entryName);
+
+      try (InputStream stream = zip.getInputStream (entry))
+      {
+        buffer = stream.readAllBytes ();
+      }
+    }
+
+    entries.put (key, buffer);
+    totalBytes += buffer.length;
+    trim ();
+
+    return buffer;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static void trim ()
+  // ---------------------------------------------------------------------------------//
+  {
+    Iterator<byte[]> iterator = entries.values ().iterator ();
+
+    // always keep the newest entry, even if it is larger than the limit
+    while (entries.size () > 1 && (totalBytes > MAX_BYTES || entries.size () > MAX_ENTRIES))
+    {
+      totalBytes -= iterator.next ().length;
+      iterator.remove ();
+    }
+  }
+}
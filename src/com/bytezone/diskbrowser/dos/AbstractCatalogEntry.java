@@ -1,8 +1,14 @@
 package com.bytezone.diskbrowser.dos;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
 import com.bytezone.diskbrowser.applefile.ApplesoftBasicProgram;
@@ -20,9 +26,11 @@ import com.bytezone.diskbrowser.applefile.ShapeTable;
 import com.bytezone.diskbrowser.applefile.SimpleText2;
 import com.bytezone.diskbrowser.applefile.BasicTextFile;
 import com.bytezone.diskbrowser.applefile.VisicalcFile;
+import com.bytezone.diskbrowser.disk.BlockList;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.disk.SectorChannel;
 import com.bytezone.diskbrowser.dos.DosDisk.FileType;
 import com.bytezone.diskbrowser.gui.DataSource;
 import com.bytezone.diskbrowser.utilities.Utility;
@@ -43,8 +51,9 @@ abstract class AbstractCatalogEntry implements AppleFileSource
   protected LocalDateTime lastModified;
 
   protected DiskAddress catalogSectorDA;
-  protected final List<DiskAddress> dataSectors = new ArrayList<> ();
-  protected final List<DiskAddress> tsSectors = new ArrayList<> ();
+  // block 0 is only ever stored when its zero flag was set, gaps are NO_BLOCK
+  protected final BlockList dataSectors = new BlockList ();
+  protected final BlockList tsSectors = new BlockList ();
 
   private CatalogEntry link;
 
@@ -163,11 +172,13 @@ abstract class AbstractCatalogEntry implements AppleFileSource
   // maybe this should be in the FormattedDisk
   // maybe DiskAddress should have a 'valid' flag
   // ---------------------------------------------------------------------------------//
-  protected DiskAddress getValidAddress (byte[] buffer, int offset)
+  protected DiskAddress getValidAddress (ByteBuffer buffer, int offset)
   // ---------------------------------------------------------------------------------//
   {
-    if (disk.isValidAddress (buffer[offset], buffer[offset + 1]))
-      return disk.getDiskAddress (buffer[offset], buffer[offset + 1]);
+    byte track = buffer.get (offset);
+    byte sector = buffer.get (offset + 1);
+    if (disk.isValidAddress (track, sector))
+      return disk.getDiskAddress (track, sector);
     return null;
   }
 
@@ -179,7 +190,7 @@ abstract class AbstractCatalogEntry implements AppleFileSource
     if (appleFile != null)
       return appleFile;
 
-    byte[] buffer = disk.readBlocks (dataSectors);
+    byte[] buffer = disk.readBlocks (getAddresses (dataSectors));
     int reportedLength;
     if (buffer.length == 0)
     {
@@ -252,7 +263,7 @@ abstract class AbstractCatalogEntry implements AppleFileSource
             appleFile = new DoubleHiResImage (name, exactBuffer);
           else if (link != null)
           {
-            byte[] auxBuffer = link.disk.readBlocks (link.dataSectors);
+            byte[] auxBuffer = link.disk.readBlocks (link.getAddresses (link.dataSectors));
             byte[] exactAuxBuffer = getExactBuffer (auxBuffer);
             if (name.endsWith (".AUX"))
               appleFile = new DoubleHiResImage (name, exactAuxBuffer, exactBuffer);
@@ -369,20 +380,68 @@ abstract class AbstractCatalogEntry implements AppleFileSource
 
   // ---------------------------------------------------------------------------------//
   @Override
-  public boolean contains (DiskAddress da)
+  public Map<String, Object> getAttributes ()
   // ---------------------------------------------------------------------------------//
   {
-    for (DiskAddress sector : tsSectors)
-      if (sector.matches (da))
-        return true;
+    Map<String, Object> attributes = new LinkedHashMap<> ();
 
-    for (DiskAddress sector : dataSectors)
-      // random access files may have gaps, and thus null sectors
-      //      is this still true? I thought I was using sector zero objects??
-      if (sector != null && sector.matches (da))
-        return true;
+    attributes.put ("fileType", getFileType ());
+    attributes.put ("locked", locked);
+    attributes.put ("sectors", reportedSize);
+    if (lastModified != null)
+      attributes.put ("modified",
+          FileTime.from (lastModified.atZone (ZoneId.systemDefault ()).toInstant ()));
 
-    return false;
+    return attributes;
+  }
+
+  // DOS keeps no byte count, so this is every data sector, including the address and
+  // length header of a binary or basic file.
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public SeekableByteChannel getChannel ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return new SectorChannel (disk, getAddresses (dataSectors));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public List<DiskAddress> getOwnedSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    List<DiskAddress> sectors = getAddresses (tsSectors);
+    sectors.addAll (getAddresses (dataSectors));
+    return sectors;
+  }
+
+  // Turns the stored block numbers back into the addresses that were read from the
+  // T/S lists. A stored 0 is a real T0S0 sector, so it gets its zero flag back.
+  // ---------------------------------------------------------------------------------//
+  List<DiskAddress> getAddresses (BlockList blocks)
+  // ---------------------------------------------------------------------------------//
+  {
+    List<DiskAddress> addresses = new ArrayList<> (blocks.size ());
+    for (int i = 0; i < blocks.size (); i++)
+    {
+      int block = blocks.get (i);
+      if (block == BlockList.NO_BLOCK)
+        addresses.add (null);                 // random access text file gap
+      else if (block == 0)
+        addresses.add (disk.getDiskAddress (0x40, 0));
+      else
+        addresses.add (disk.getDiskAddress (block));
+    }
+    return addresses;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean contains (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    // random access file gaps are NO_BLOCK, which never matches
+    return tsSectors.contains (da) || dataSectors.contains (da);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -409,8 +468,7 @@ abstract class AbstractCatalogEntry implements AppleFileSource
   {
     List<DiskAddress> sectors = new ArrayList<> ();
     sectors.add (catalogSectorDA);
-    sectors.addAll (tsSectors);
-    sectors.addAll (dataSectors);
+    sectors.addAll (getOwnedSectors ());
     return sectors;
   }
 
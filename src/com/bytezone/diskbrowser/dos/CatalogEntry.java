@@ -1,6 +1,10 @@
 package com.bytezone.diskbrowser.dos;
 
+import java.nio.ByteBuffer;
+
 import com.bytezone.diskbrowser.disk.AppleDiskAddress;
+import com.bytezone.diskbrowser.disk.BlockList;
+import com.bytezone.diskbrowser.disk.ChainWalker;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.dos.DosDisk.FileType;
 import com.bytezone.diskbrowser.utilities.Utility;
@@ -26,8 +30,12 @@ class CatalogEntry extends AbstractCatalogEntry
       DiskAddress da = disk.getDiskAddress (entryBuffer[0], entryBuffer[1]);
 
       // Loop through all TS-list sectors
+      ChainWalker walker = new ChainWalker (disk, "T/S list of " + name.trim ());
       loop: while (!da.isZero () || ((AppleDiskAddress) da).zeroFlag ())
       {
+        if (!walker.visit (da))
+          break;
+
         if (dosDisk.stillAvailable (da))
         {
           if (isValidCatalogSector (da))
@@ -46,14 +54,14 @@ class CatalogEntry extends AbstractCatalogEntry
               name);
           break;
         }
-        tsSectors.add (da);
-        byte[] sectorBuffer = disk.readBlock (da);
+        tsSectors.add (da.getBlockNo ());
+        ByteBuffer sectorBuffer = disk.readBlockView (da);
 
         int startPtr = 12;
         // the tsList *should* start at 0xC0, but some disks start in the unused bytes
         if (false)
           for (int i = 7; i < startPtr; i++)
-            if (sectorBuffer[i] != 0)
+            if (sectorBuffer.get (i) != 0)
             {
               startPtr = i;
               break;
@@ -67,7 +75,7 @@ class CatalogEntry extends AbstractCatalogEntry
           {
             System.out.printf (
                 "T/S list at offset %02X contains an invalid address : %02X, %02X (file %s)%n",
-                i, sectorBuffer[i], sectorBuffer[i + 1], name.trim ());
+                i, sectorBuffer.get (i), sectorBuffer.get (i + 1), name.trim ());
             break loop;
           }
           if (da.isZero () && !((AppleDiskAddress) da).zeroFlag ())
@@ -75,11 +83,11 @@ class CatalogEntry extends AbstractCatalogEntry
             if (fileType != FileType.Text)
               break;
             ++textFileGaps;
-            dataSectors.add (null);
+            dataSectors.add (BlockList.NO_BLOCK);
           }
           else
           {
-            dataSectors.add (da);
+            dataSectors.add (da.getBlockNo ());
             if (dosDisk.stillAvailable (da))
               dosDisk.sectorTypes[da.getBlockNo ()] = dosDisk.dataSector;
             else
@@ -95,8 +103,8 @@ class CatalogEntry extends AbstractCatalogEntry
         if (da == null)
         {
           System.out.print ("Next T/S list in sector " + thisDA);
-          System.out.printf (" is invalid : %02X, %02X%n", sectorBuffer[1],
-              sectorBuffer[2]);
+          System.out.printf (" is invalid : %02X, %02X%n", sectorBuffer.get (1),
+              sectorBuffer.get (2));
           break;
         }
 
@@ -112,31 +120,25 @@ class CatalogEntry extends AbstractCatalogEntry
     // remove trailing empty sectors
     if (fileType == FileType.Text)
     {
-      while (dataSectors.size () > 0)
+      while (!dataSectors.isEmpty () && dataSectors.getLast () == BlockList.NO_BLOCK)
       {
-        DiskAddress da = dataSectors.get (dataSectors.size () - 1);
-        if (da == null)
-        {
-          dataSectors.remove (dataSectors.size () - 1);
-          --textFileGaps;
-        }
-        else
-          break;
+        dataSectors.removeLast ();
+        --textFileGaps;
       }
     }
     else if (dataSectors.size () > 0)       // get the file length
     {
-      byte[] buffer = disk.readBlock (dataSectors.get (0));
+      ByteBuffer buffer = disk.readBlockView (dataSectors.get (0));
       switch (fileType)
       {
         case IntegerBasic:
         case ApplesoftBasic:
-          length = Utility.intValue (buffer[0], buffer[1]);
+          length = Utility.unsignedShort (buffer, 0);
           break;
 
         default:
-          address = Utility.intValue (buffer[0], buffer[1]);
-          length = Utility.intValue (buffer[2], buffer[3]);
+          address = Utility.unsignedShort (buffer, 0);
+          length = Utility.unsignedShort (buffer, 2);
       }
     }
   }
@@ -145,14 +147,14 @@ class CatalogEntry extends AbstractCatalogEntry
   private boolean isValidCatalogSector (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    byte[] buffer = da.readBlock ();
+    ByteBuffer buffer = da.getDisk ().readBlockView (da);
 
-    if (!da.getDisk ().isValidAddress (buffer[1], buffer[2]))
+    if (!da.getDisk ().isValidAddress (buffer.get (1), buffer.get (2)))
       return false;
-    if (buffer[3] != 0 || buffer[4] != 0)         // not supposed to be used
+    if (buffer.get (3) != 0 || buffer.get (4) != 0)   // not supposed to be used
       // Diags2E.dsk stores its own sector address here
-      if (da.getTrackNo () != (buffer[3] & 0xFF)
-          && da.getSectorNo () != (buffer[4] & 0xFF))
+      if (da.getTrackNo () != (buffer.get (3) & 0xFF)
+          && da.getSectorNo () != (buffer.get (4) & 0xFF))
         return false;
 
     return true;
@@ -1,7 +1,10 @@
 package com.bytezone.diskbrowser.dos;
 
+import java.nio.ByteBuffer;
+
 import com.bytezone.diskbrowser.applefile.DefaultAppleFile;
 import com.bytezone.diskbrowser.disk.AppleDiskAddress;
+import com.bytezone.diskbrowser.disk.ChainWalker;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.gui.DataSource;
 
@@ -51,17 +54,24 @@ class DeletedCatalogEntry extends AbstractCatalogEntry
     }
 
     // Loop through all TS-list sectors
+    ChainWalker walker = new ChainWalker (disk, null);    // old lists are often reused
     loop: while (!da.isZero () || ((AppleDiskAddress) da).zeroFlag ())
     {
+      if (!walker.visit (da))
+      {
+        allSectorsAvailable = false;
+        break;
+      }
+
       if (!dosDisk.stillAvailable (da))
       {
         allSectorsAvailable = false;
         break;
       }
-      tsSectors.add (da);
+      tsSectors.add (da.getBlockNo ());
       totalBlocks++;
 
-      byte[] sectorBuffer = disk.readBlock (da);
+      ByteBuffer sectorBuffer = disk.readBlockView (da);
       for (int i = 12, max = disk.getBlockSize (); i < max; i += 2)
       {
         da = getValidAddress (sectorBuffer, i);
@@ -77,7 +87,7 @@ class DeletedCatalogEntry extends AbstractCatalogEntry
             allSectorsAvailable = false;
             break loop;
           }
-          dataSectors.add (da);
+          dataSectors.add (da.getBlockNo ());
           totalBlocks++;
         }
       }
@@ -87,7 +97,7 @@ class DeletedCatalogEntry extends AbstractCatalogEntry
       if (da == null)
       {
         System.out.printf ("Next T/S list in sector %s is invalid : %02X, %02X%n", da,
-            sectorBuffer[1], sectorBuffer[2]);
+            sectorBuffer.get (1), sectorBuffer.get (2));
         break;
       }
     }
@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.dos;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -11,12 +12,14 @@ import com.bytezone.diskbrowser.applefile.AppleFileSource;
 import com.bytezone.diskbrowser.applefile.BootSector;
 import com.bytezone.diskbrowser.disk.AbstractFormattedDisk;
 import com.bytezone.diskbrowser.disk.AppleDisk;
+import com.bytezone.diskbrowser.disk.ChainWalker;
 import com.bytezone.diskbrowser.disk.DefaultAppleFileSource;
 import com.bytezone.diskbrowser.disk.DefaultSector;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.SectorType;
 import com.bytezone.diskbrowser.gui.DataSource;
+import com.bytezone.diskbrowser.utilities.Utility;
 
 // -----------------------------------------------------------------------------------//
 public class DosDisk extends AbstractFormattedDisk
@@ -106,12 +109,13 @@ public class DosDisk extends AbstractFormattedDisk
 
     // flag the catalog sectors before any file mistakenly grabs them
     da = disk.getDiskAddress (catalogStart.getBlockNo ());
+    ChainWalker walker = new ChainWalker (disk, "Catalog");
     do
     {
-      if (!disk.isValidAddress (da))
+      if (!disk.isValidAddress (da) || !walker.visit (da))
         break;
-      sectorBuffer = disk.readBlock (da);
-      if (!disk.isValidAddress (sectorBuffer[1], sectorBuffer[2]))
+      ByteBuffer catalogBuffer = disk.readBlockView (da);
+      if (!disk.isValidAddress (catalogBuffer.get (1), catalogBuffer.get (2)))
         break;
 
       // The first byte is officially unused, but it always seems to contain 0x00 or 0xFF
@@ -125,8 +129,8 @@ public class DosDisk extends AbstractFormattedDisk
 
       sectorTypes[da.getBlockNo ()] = catalogSector;
 
-      int track = sectorBuffer[1] & 0xFF;
-      int sector = sectorBuffer[2] & 0xFF;
+      int track = catalogBuffer.get (1) & 0xFF;
+      int sector = catalogBuffer.get (2) & 0xFF;
       if (!disk.isValidAddress (track, sector))
         break;
 
@@ -136,21 +140,21 @@ public class DosDisk extends AbstractFormattedDisk
 
     // same loop, but now all the catalog sectors are properly flagged
     da = disk.getDiskAddress (catalogStart.getBlockNo ());
+    walker = new ChainWalker (disk, null);           // already reported
     loop: do
     {
-      if (!disk.isValidAddress (da))
+      if (!disk.isValidAddress (da) || !walker.visit (da))
         break;
-      sectorBuffer = disk.readBlock (da);
-      if (!disk.isValidAddress (sectorBuffer[1], sectorBuffer[2]))
+      ByteBuffer catalogBuffer = disk.readBlockView (da);
+      if (!disk.isValidAddress (catalogBuffer.get (1), catalogBuffer.get (2)))
         break;
 
       for (int ptr = 11; ptr < 256; ptr += ENTRY_SIZE)
       {
-        if (sectorBuffer[ptr] == 0)         // empty slot, no more catalog entries
+        if (catalogBuffer.get (ptr) == 0)   // empty slot, no more catalog entries
           break loop;
 
-        byte[] entryBuffer = new byte[ENTRY_SIZE];
-        System.arraycopy (sectorBuffer, ptr, entryBuffer, 0, ENTRY_SIZE);
+        byte[] entryBuffer = Utility.getBytes (catalogBuffer, ptr, ENTRY_SIZE);
         int track = entryBuffer[0] & 0xFF;
         boolean deletedFlag = (entryBuffer[0] & 0x80) != 0;
 
@@ -166,15 +170,15 @@ public class DosDisk extends AbstractFormattedDisk
         else
         {
           CatalogEntry catalogEntry = new CatalogEntry (this, da, entryBuffer);
-          fileEntries.add (catalogEntry);
+          addFile (catalogEntry);
           DefaultMutableTreeNode node = new DefaultMutableTreeNode (catalogEntry);
           node.setAllowsChildren (false);
           volumeNode.add (node);
         }
       }
 
-      int track = sectorBuffer[1] & 0xFF;
-      int sector = sectorBuffer[2] & 0xFF;
+      int track = catalogBuffer.get (1) & 0xFF;
+      int sector = catalogBuffer.get (2) & 0xFF;
       if (dosVTOCSector.dosVersion >= 0x41)
       {
         track = track & 0x3F;
@@ -184,7 +188,7 @@ public class DosDisk extends AbstractFormattedDisk
       if (!disk.isValidAddress (track, sector))
         break;
 
-      da = disk.getDiskAddress (sectorBuffer[1], sectorBuffer[2]);
+      da = disk.getDiskAddress (catalogBuffer.get (1), catalogBuffer.get (2));
 
     } while (!da.isZero ());
 
@@ -194,15 +198,17 @@ public class DosDisk extends AbstractFormattedDisk
       String name = fe.getUniqueName ();
       if (name.endsWith (".AUX"))
       {
-        String partner1 = name.substring (0, name.length () - 4);
+        String partner1 = getBaseName (name);
         String partner2 = partner1 + ".BIN";
-        for (AppleFileSource fe2 : fileEntries)
-          if (fe2.getUniqueName ().equals (partner1)
-              || fe2.getUniqueName ().equals (partner2))
+        for (AppleFileSource fe2 : getFilesByBaseName (partner1))
+        {
+          String partnerName = fe2.getUniqueName ();
+          if (partnerName.equals (partner1) || partnerName.equals (partner2))
           {
             ((CatalogEntry) fe2).link ((CatalogEntry) fe);
             ((CatalogEntry) fe).link ((CatalogEntry) fe2);
           }
+        }
       }
     }
 
@@ -285,7 +291,12 @@ public class DosDisk extends AbstractFormattedDisk
       return false;
     }
 
-    int[] cb = new int[3];
+    // the VTOC is sector 0 with every interleave
+    ByteBuffer vtoc = disk.readBlockView (disk.getDiskAddress (0x11, 0x00), 0);
+    if (!checkFormat (vtoc))
+      return false;
+
+    // score each interleave by reading the catalog through it, then switch only once
     int best = 0;
     int il = -1;
     int max = disk.getBlocksPerTrack () == 16 ? 3 : 1;    // no interleave for 13 sector?
@@ -295,22 +306,25 @@ public class DosDisk extends AbstractFormattedDisk
       if (debug)
         System.out.printf ("Checking interleave %d%n", interleave);
 
-      disk.setInterleave (interleave);
-      cb[interleave] = checkFormat (disk);
-      if (cb[interleave] >= 15)
-        return true;
+      int catalogBlocks = countCatalogBlocks (disk, vtoc, interleave);
+      if (debug)
+        System.out.printf ("Catalog blocks: %s%n", catalogBlocks);
 
-      if (cb[interleave] > best)
+      if (catalogBlocks > best)
       {
-        best = cb[interleave];
+        best = catalogBlocks;
         il = interleave;
       }
+
+      if (catalogBlocks >= 15)
+        break;
     }
 
     if (best <= 1)
       return false;
 
-    disk.setInterleave (il);
+    if (disk.getInterleave () != il)
+      disk.setInterleave (il);
     return true;
   }
 
@@ -345,11 +359,9 @@ public class DosDisk extends AbstractFormattedDisk
   }
 
   // ---------------------------------------------------------------------------------//
-  private static int checkFormat (AppleDisk disk)
+  private static boolean checkFormat (ByteBuffer buffer)
   // ---------------------------------------------------------------------------------//
   {
-    byte[] buffer = disk.readBlock (0x11, 0x00);
-
     // DISCCOMMANDER.DSK uses track 0x17 for the catalog
     //    if (buffer[1] != 0x11) // first catalog track
     //      return 0;
@@ -363,13 +375,14 @@ public class DosDisk extends AbstractFormattedDisk
     //    }
 
     if (debug)
-      System.out.printf ("Sectors per track: %02X%n", buffer[53]);
+      System.out.printf ("Sectors per track: %02X%n", buffer.get (53));
 
-    if (buffer[53] != 16 && buffer[53] != 13 && buffer[53] != 32)  // sectors per track
+    int sectorsPerTrack = buffer.get (53);
+    if (sectorsPerTrack != 16 && sectorsPerTrack != 13 && sectorsPerTrack != 32)
     {
       if (debug)
-        System.out.printf ("Bad sectors per track : %02X%n", buffer[53]);
-      return 0;
+        System.out.printf ("Bad sectors per track : %02X%n", sectorsPerTrack);
+      return false;
     }
 
     //    if (buffer[49] < -1 || buffer[49] > 1)      // direction of next file save
@@ -379,30 +392,28 @@ public class DosDisk extends AbstractFormattedDisk
     //      //      return 0;
     //    }
 
-    int version = buffer[3] & 0xFF;
+    int version = buffer.get (3) & 0xFF;
     if (debug)
-      System.out.printf ("Version: %02X%n", buffer[3]);
+      System.out.printf ("Version: %02X%n", version);
     if (version == 0 || (version > 0x43 && version != 0xFF))
     {
       if (debug)
         System.out.printf ("Bad version : %02X%n", version);
-      return 0;
+      return false;
     }
 
-    int catalogBlocks = countCatalogBlocks (disk, buffer);
-    if (debug)
-      System.out.printf ("Catalog blocks: %s%n", catalogBlocks);
-
-    return catalogBlocks;
+    return true;
   }
 
   // ---------------------------------------------------------------------------------//
-  private static int countCatalogBlocks (AppleDisk disk, byte[] buffer)
+  private static int countCatalogBlocks (AppleDisk disk, ByteBuffer buffer,
+      int interleave)
   // ---------------------------------------------------------------------------------//
   {
-    DiskAddress catalogStart = disk.getDiskAddress (buffer[1], buffer[2]);
+    DiskAddress catalogStart = disk.getDiskAddress (buffer.get (1), buffer.get (2));
     DiskAddress da = disk.getDiskAddress (catalogStart.getBlockNo ());
-    List<DiskAddress> catalogAddresses = new ArrayList<> ();
+    ChainWalker walker = new ChainWalker (disk, null);
+    int catalogBlocks = 0;
 
     do
     {
@@ -416,40 +427,31 @@ public class DosDisk extends AbstractFormattedDisk
         return 0;
       }
 
-      if (isDuplicate (catalogAddresses, da))
+      if (!walker.visit (da))
       {
         if (debug)
           System.out.println ("Catalog looping");
         return 0;
       }
 
-      buffer = disk.readBlock (da);
-      if (!disk.isValidAddress (buffer[1], buffer[2]))
+      buffer = disk.readBlockView (da, interleave);
+      if (!disk.isValidAddress (buffer.get (1), buffer.get (2)))
       {
         if (debug)
-          System.out.printf ("Invalid address: %02X %02X%n", buffer[1], buffer[2]);
-        return catalogAddresses.size ();
+          System.out.printf ("Invalid address: %02X %02X%n", buffer.get (1),
+              buffer.get (2));
+        return catalogBlocks;
       }
 
-      catalogAddresses.add (da);
+      catalogBlocks++;
 
-      da = disk.getDiskAddress (buffer[1], buffer[2]);
+      da = disk.getDiskAddress (buffer.get (1), buffer.get (2));
 
     } while (!da.isZero ());
 
     if (debug)
-      System.out.printf ("Catalog blocks: %d%n", catalogAddresses.size ());
-    return catalogAddresses.size ();
-  }
-
-  // ---------------------------------------------------------------------------------//
-  private static boolean isDuplicate (List<DiskAddress> catalogAddresses, DiskAddress da)
-  // ---------------------------------------------------------------------------------//
-  {
-    for (DiskAddress diskAddress : catalogAddresses)
-      if (diskAddress.getBlockNo () == da.getBlockNo ())
-        return true;
-    return false;
+      System.out.printf ("Catalog blocks: %d%n", catalogBlocks);
+    return catalogBlocks;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -0,0 +1,156 @@
+package com.bytezone.diskbrowser.filesystem;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.bytezone.diskbrowser.filesystem.AppleFileSystem.Node;
+
+// The basic attributes of a file in a disk image, plus the file system's own catalog
+// fields, which are read through the "apple" view.
+// -----------------------------------------------------------------------------------//
+class AppleFileAttributes implements BasicFileAttributes
+// -----------------------------------------------------------------------------------//
+{
+  private static final FileTime NO_TIME = FileTime.fromMillis (0);
+
+  private final Node node;
+  private final Map<String, Object> attributes;
+  private final long size;
+
+  // ---------------------------------------------------------------------------------//
+  AppleFileAttributes (Node node) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    this.node = node;
+
+    if (node.source == null)
+    {
+      attributes = Collections.emptyMap ();
+      size = 0;
+    }
+    else
+    {
+      attributes = node.source.getAttributes ();
+      if (node.isDirectory ())
+        size = 0;
+      else
+        try (SeekableByteChannel channel = node.source.getChannel ())
+        {
+          size = channel.size ();
+        }
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  Map<String, Object> getBasicAttributes ()
+  // ---------------------------------------------------------------------------------//
+  {
+    Map<String, Object> map = new LinkedHashMap<> ();
+
+    map.put ("lastModifiedTime", lastModifiedTime ());
+    map.put ("lastAccessTime", lastAccessTime ());
+    map.put ("creationTime", creationTime ());
+    map.put ("size", size ());
+    map.put ("isRegularFile", isRegularFile ());
+    map.put ("isDirectory", isDirectory ());
+    map.put ("isSymbolicLink", isSymbolicLink ());
+    map.put ("isOther", isOther ());
+    map.put ("fileKey", fileKey ());
+
+    return map;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  Map<String, Object> getAppleAttributes ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return attributes;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private FileTime getTime (String name)
+  // ---------------------------------------------------------------------------------//
+  {
+    Object time = attributes.get (name);
+    return time instanceof FileTime ? (FileTime) time : null;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public FileTime lastModifiedTime ()
+  // ---------------------------------------------------------------------------------//
+  {
+    FileTime modified = getTime ("modified");
+    return modified != null ? modified : creationTime ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public FileTime lastAccessTime ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return lastModifiedTime ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public FileTime creationTime ()
+  // ---------------------------------------------------------------------------------//
+  {
+    FileTime created = getTime ("created");
+    return created != null ? created : NO_TIME;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isRegularFile ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return !node.isDirectory ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isDirectory ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return node.isDirectory ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isSymbolicLink ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return false;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isOther ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return false;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public long size ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return size;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Object fileKey ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return null;
+  }
+}
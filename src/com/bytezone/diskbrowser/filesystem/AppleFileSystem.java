@@ -0,0 +1,412 @@
+package com.bytezone.diskbrowser.filesystem;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.disk.DualDosDisk;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.prodos.ProdosDisk;
+
+// A disk image mounted as a read-only file system. The path tree is built from the
+// catalog list the first time a path is looked up, and directories that no entry
+// describes (such as a ProDOS volume) are added as their children are found.
+// -----------------------------------------------------------------------------------//
+class AppleFileSystem extends FileSystem
+// -----------------------------------------------------------------------------------//
+{
+  static final String VIEW_NAME = "apple";
+
+  private final AppleFileSystemProvider provider;
+  private final Path imagePath;
+  private final FormattedDisk disk;
+
+  private Map<String, Node> nodes;                      // absolute path -> node
+  private volatile boolean open = true;
+
+  // ---------------------------------------------------------------------------------//
+  AppleFileSystem (AppleFileSystemProvider provider, Path imagePath, FormattedDisk disk)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.provider = provider;
+    this.imagePath = imagePath;
+    this.disk = disk;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  Path getImagePath ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return imagePath;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  FormattedDisk getDisk ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return disk;
+  }
+
+  // returns null if there is nothing at the path
+  // ---------------------------------------------------------------------------------//
+  synchronized Node getNode (ApplePath path)
+  // ---------------------------------------------------------------------------------//
+  {
+    checkOpen ();
+
+    if (nodes == null)
+      buildNodes ();
+
+    return nodes.get (path.toAbsolutePath ().normalize ().toString ());
+  }
+
+  // A name that is already in use (DOS allows duplicates, and deleted files can share
+  // a name) is given the next free version, as in NAME;2.
+  // ---------------------------------------------------------------------------------//
+  private void buildNodes ()
+  // ---------------------------------------------------------------------------------//
+  {
+    nodes = new HashMap<> ();
+    nodes.put ("/", new Node ("/", null));
+
+    boolean hierarchical = isHierarchical ();
+
+    for (AppleFileSource source : disk.getCatalogList ())
+    {
+      String path = getPath (source.getUniqueName (), hierarchical);
+      Node node = nodes.get (path);
+      if (node == null)
+        addNode (path, source);
+      else if (node.source == null)                   // found a child first
+        node.source = source;
+      else
+      {
+        int version = 2;
+        while (nodes.containsKey (path + ";" + version))
+          version++;
+        addNode (path + ";" + version, source);
+      }
+    }
+  }
+
+  // Only ProDOS unique names are paths. Any other name is a single name, and may
+  // contain a /.
+  // ---------------------------------------------------------------------------------//
+  private boolean isHierarchical ()
+  // ---------------------------------------------------------------------------------//
+  {
+    FormattedDisk formattedDisk = disk instanceof DualDosDisk
+        ? ((DualDosDisk) disk).getCurrentDisk () : disk;
+    return formattedDisk instanceof ProdosDisk;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static String getPath (String uniqueName, boolean hierarchical)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!hierarchical)
+      return "/" + encodeName (uniqueName);
+
+    StringBuilder path = new StringBuilder ();
+    for (String name : uniqueName.split ("/", -1))
+      path.append ("/" + encodeName (name));
+    return path.toString ();
+  }
+
+  // A catalog name becomes one path name. % and / are written as %25 and %2F, the
+  // dots of . and .. as %2E, and an empty name as %00, so no name can change the
+  // shape of the tree. The nodes are found by path, so a name is never decoded.
+  // ---------------------------------------------------------------------------------//
+  private static String encodeName (String name)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (name.isEmpty ())
+      return "%00";
+    if (name.equals (".") || name.equals (".."))
+      return name.replace (".", "%2E");
+
+    return name.replace ("%", "%25").replace ("/", "%2F");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private Node addNode (String path, AppleFileSource source)
+  // ---------------------------------------------------------------------------------//
+  {
+    Node node = new Node (path, source);
+    nodes.put (path, node);
+
+    int pos = path.lastIndexOf ('/');
+    String parentPath = pos == 0 ? "/" : path.substring (0, pos);
+    Node parent = nodes.get (parentPath);
+    if (parent == null)
+      parent = addNode (parentPath, null);
+    parent.children.add (path.substring (pos + 1));
+
+    return node;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  URI toUri (String path)
+  // ---------------------------------------------------------------------------------//
+  {
+    try
+    {
+      return new URI (provider.getScheme () + ":" + imagePath.toUri () + "!"
+          + new URI (null, null, path, null).getRawPath ());
+    }
+    catch (URISyntaxException e)
+    {
+      throw new AssertionError (e);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void checkOpen ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!open)
+      throw new ClosedFileSystemException ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public AppleFileSystemProvider provider ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return provider;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void close () throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!open)
+      return;
+
+    open = false;
+    provider.removeFileSystem (this);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isOpen ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return open;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isReadOnly ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return true;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getSeparator ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return "/";
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Iterable<Path> getRootDirectories ()
+  // ---------------------------------------------------------------------------------//
+  {
+    checkOpen ();
+    return Collections.singletonList (new ApplePath (this, "/"));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Iterable<FileStore> getFileStores ()
+  // ---------------------------------------------------------------------------------//
+  {
+    checkOpen ();
+    return Collections.emptyList ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Set<String> supportedFileAttributeViews ()
+  // ---------------------------------------------------------------------------------//
+  {
+    Set<String> views = new LinkedHashSet<> ();
+    views.add ("basic");
+    views.add (VIEW_NAME);
+    return views;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path getPath (String first, String... more)
+  // ---------------------------------------------------------------------------------//
+  {
+    StringBuilder path = new StringBuilder (first);
+    for (String name : more)
+      if (!name.isEmpty ())
+        path.append (path.length () == 0 ? name : "/" + name);
+
+    return new ApplePath (this, path.toString ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public PathMatcher getPathMatcher (String syntaxAndPattern)
+  // ---------------------------------------------------------------------------------//
+  {
+    int pos = syntaxAndPattern.indexOf (':');
+    if (pos <= 0)
+      throw new IllegalArgumentException ("Missing syntax : " + syntaxAndPattern);
+
+    String syntax = syntaxAndPattern.substring (0, pos);
+    String expression = syntaxAndPattern.substring (pos + 1);
+
+    String regex;
+    if ("glob".equalsIgnoreCase (syntax))
+      regex = globToRegex (expression);
+    else if ("regex".equalsIgnoreCase (syntax))
+      regex = expression;
+    else
+      throw new UnsupportedOperationException ("Syntax not supported : " + syntax);
+
+    Pattern pattern = Pattern.compile (regex);
+    return path -> pattern.matcher (path.toString ()).matches ();
+  }
+
+  // * and ? stay within a name, ** crosses names, and {a,b} and [...] are as in the
+  // default file system
+  // ---------------------------------------------------------------------------------//
+  private static String globToRegex (String glob)
+  // ---------------------------------------------------------------------------------//
+  {
+    StringBuilder regex = new StringBuilder ();
+    boolean inGroup = false;
+
+    for (int i = 0; i < glob.length (); i++)
+    {
+      char c = glob.charAt (i);
+      switch (c)
+      {
+        case '*':
+          if (i + 1 < glob.length () && glob.charAt (i + 1) == '*')
+          {
+            regex.append (".*");
+            i++;
+          }
+          else
+            regex.append ("[^/]*");
+          break;
+
+        case '?':
+          regex.append ("[^/]");
+          break;
+
+        case '{':
+          regex.append ("(?:");
+          inGroup = true;
+          break;
+
+        case '}':
+          regex.append (inGroup ? ")" : "\\}");
+          inGroup = false;
+          break;
+
+        case ',':
+          regex.append (inGroup ? "|" : ",");
+          break;
+
+        case '[':
+          int end = glob.indexOf (']', i + 1);
+          if (end < 0)
+            throw new IllegalArgumentException ("Missing ] in glob : " + glob);
+          String set = glob.substring (i + 1, end);
+          if (set.startsWith ("!"))
+            set = "^" + set.substring (1);
+          regex.append ("[" + set + "]");
+          i = end;
+          break;
+
+        case '\\':
+          if (++i < glob.length ())
+            regex.append (Pattern.quote (String.valueOf (glob.charAt (i))));
+          break;
+
+        default:
+          regex.append (Pattern.quote (String.valueOf (c)));
+      }
+    }
+
+    return regex.toString ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public UserPrincipalLookupService getUserPrincipalLookupService ()
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new UnsupportedOperationException ("Disk images have no users");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public WatchService newWatchService () throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new UnsupportedOperationException ("Disk images cannot be watched");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return imagePath.toString ();
+  }
+
+  // A file or directory in the tree. Directories that the catalog does not list have
+  // no source.
+  // ---------------------------------------------------------------------------------//
+  static class Node
+  // ---------------------------------------------------------------------------------//
+  {
+    final String path;
+    AppleFileSource source;
+    final List<String> children = new ArrayList<> ();
+
+    // -------------------------------------------------------------------------------//
+    Node (String path, AppleFileSource source)
+    // -------------------------------------------------------------------------------//
+    {
+      this.path = path;
+      this.source = source;
+    }
+
+    // -------------------------------------------------------------------------------//
+    boolean isDirectory ()
+    // -------------------------------------------------------------------------------//
+    {
+      return source == null || source.isDirectory () || !children.isEmpty ();
+    }
+  }
+}
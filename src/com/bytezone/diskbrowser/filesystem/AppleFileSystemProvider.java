@@ -0,0 +1,401 @@
+package com.bytezone.diskbrowser.filesystem;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.filesystem.AppleFileSystem.Node;
+import com.bytezone.diskbrowser.utilities.Utility;
+
+// Mounts disk images as read-only file systems, so that an archive can be walked with
+// Files.walk () and its files read with Files.newByteChannel (). A disk is opened with
+// FileSystems.newFileSystem (path) or with a URI such as
+//   appledisk:file:///disks/games.po!/GAMES/HELLO
+// File contents are read through each file's SectorChannel, and the "apple" attribute
+// view returns the catalog fields, such as the file type and aux type.
+// -----------------------------------------------------------------------------------//
+public class AppleFileSystemProvider extends FileSystemProvider
+// -----------------------------------------------------------------------------------//
+{
+  static final String SCHEME = "appledisk";
+
+  private final Map<Path, AppleFileSystem> fileSystems = new HashMap<> ();
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getScheme ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return SCHEME;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public FileSystem newFileSystem (URI uri, Map<String, ?> env) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    Path imagePath = getImagePath (uri);
+
+    synchronized (fileSystems)
+    {
+      if (fileSystems.containsKey (imagePath))
+        throw new FileSystemAlreadyExistsException (imagePath.toString ());
+
+      AppleFileSystem fileSystem = createFileSystem (imagePath);
+      fileSystems.put (imagePath, fileSystem);
+      return fileSystem;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public FileSystem newFileSystem (Path path, Map<String, ?> env) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    if (path.getFileSystem () != FileSystems.getDefault ()
+        || !isDiskImage (path.getFileName ().toString ()))
+      throw new UnsupportedOperationException ("Not a disk image : " + path);
+
+    return createFileSystem (path.toAbsolutePath ().normalize ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private AppleFileSystem createFileSystem (Path imagePath) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!imagePath.toFile ().isFile ())
+      throw new NoSuchFileException (imagePath.toString ());
+
+    FormattedDisk disk = DiskFactory.createDisk (imagePath.toString ());
+    if (disk == null)
+      throw new FileSystemException (imagePath.toString (), null,
+          "Not a recognised disk image");
+
+    return new AppleFileSystem (this, imagePath, disk);
+  }
+
+  // compressed images are opened by DiskFactory, so look at the suffix inside
+  // ---------------------------------------------------------------------------------//
+  private boolean isDiskImage (String fileName)
+  // ---------------------------------------------------------------------------------//
+  {
+    String name = fileName.toLowerCase ();
+    if (name.endsWith (".gz"))
+      name = name.substring (0, name.length () - 3);
+    return Utility.validFileType (name);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  void removeFileSystem (AppleFileSystem fileSystem)
+  // ---------------------------------------------------------------------------------//
+  {
+    synchronized (fileSystems)
+    {
+      fileSystems.remove (fileSystem.getImagePath (), fileSystem);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public FileSystem getFileSystem (URI uri)
+  // ---------------------------------------------------------------------------------//
+  {
+    Path imagePath = getImagePath (uri);
+
+    synchronized (fileSystems)
+    {
+      AppleFileSystem fileSystem = fileSystems.get (imagePath);
+      if (fileSystem == null)
+        throw new FileSystemNotFoundException (imagePath.toString ());
+      return fileSystem;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path getPath (URI uri)
+  // ---------------------------------------------------------------------------------//
+  {
+    String spec = uri.getSchemeSpecificPart ();
+    int pos = spec.indexOf ("!/");
+    String path = pos < 0 ? "/" : spec.substring (pos + 1);
+
+    return getFileSystem (uri).getPath (path);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private Path getImagePath (URI uri)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!SCHEME.equalsIgnoreCase (uri.getScheme ()))
+      throw new IllegalArgumentException ("URI scheme is not " + SCHEME + " : " + uri);
+
+    String spec = uri.getRawSchemeSpecificPart ();
+    int pos = spec.indexOf ("!/");
+    if (pos >= 0)
+      spec = spec.substring (0, pos);
+
+    return Paths.get (URI.create (spec)).toAbsolutePath ().normalize ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private Node getNode (Path path) throws NoSuchFileException
+  // ---------------------------------------------------------------------------------//
+  {
+    ApplePath applePath = ApplePath.toApplePath (path);
+    Node node = applePath.getFileSystem ().getNode (applePath);
+    if (node == null)
+      throw new NoSuchFileException (path.toString ());
+    return node;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public SeekableByteChannel newByteChannel (Path path,
+      Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    for (OpenOption option : options)
+      if (option != StandardOpenOption.READ && option != LinkOption.NOFOLLOW_LINKS)
+        throw new ReadOnlyFileSystemException ();
+
+    Node node = getNode (path);
+    if (node.isDirectory ())
+      throw new FileSystemException (path.toString (), null, "Is a directory");
+
+    return node.source.getChannel ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public DirectoryStream<Path> newDirectoryStream (Path dir,
+      Filter<? super Path> filter) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    Node node = getNode (dir);
+    if (!node.isDirectory ())
+      throw new FileSystemException (dir.toString (), null, "Not a directory");
+
+    List<Path> entries = new ArrayList<> ();
+    for (String name : node.children)
+    {
+      Path entry = dir.resolve (name);
+      if (filter == null || filter.accept (entry))
+        entries.add (entry);
+    }
+
+    return new DirectoryStream<Path> ()
+    {
+      boolean iterated;
+
+      @Override
+      public Iterator<Path> iterator ()
+      {
+        if (iterated)
+          throw new IllegalStateException ("Iterator already obtained");
+        iterated = true;
+        return entries.iterator ();
+      }
+
+      @Override
+      public void close ()
+      {
+      }
+    };
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void createDirectory (Path dir, FileAttribute<?>... attrs) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new ReadOnlyFileSystemException ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void delete (Path path) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new ReadOnlyFileSystemException ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void copy (Path source, Path target, CopyOption... options) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new ReadOnlyFileSystemException ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void move (Path source, Path target, CopyOption... options) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new ReadOnlyFileSystemException ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isSameFile (Path path, Path path2) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    if (path.equals (path2))
+      return true;
+    if (!(path2 instanceof ApplePath) || path.getFileSystem () != path2.getFileSystem ())
+      return false;
+
+    return getNode (path) == getNode (path2);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isHidden (Path path) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    return false;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public FileStore getFileStore (Path path) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new UnsupportedOperationException ("Disk images have no file stores");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void checkAccess (Path path, AccessMode... modes) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    getNode (path);
+
+    for (AccessMode mode : modes)
+      if (mode != AccessMode.READ)
+        throw new AccessDeniedException (path.toString ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  @SuppressWarnings ("unchecked")
+  public <V extends FileAttributeView> V getFileAttributeView (Path path, Class<V> type,
+      LinkOption... options)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (type != BasicFileAttributeView.class)
+      return null;
+
+    return (V) new BasicFileAttributeView ()
+    {
+      @Override
+      public String name ()
+      {
+        return "basic";
+      }
+
+      @Override
+      public BasicFileAttributes readAttributes () throws IOException
+      {
+        return new AppleFileAttributes (getNode (path));
+      }
+
+      @Override
+      public void setTimes (FileTime lastModifiedTime, FileTime lastAccessTime,
+          FileTime createTime) throws IOException
+      {
+        throw new ReadOnlyFileSystemException ();
+      }
+    };
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  @SuppressWarnings ("unchecked")
+  public <A extends BasicFileAttributes> A readAttributes (Path path, Class<A> type,
+      LinkOption... options) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    if (type != BasicFileAttributes.class)
+      throw new UnsupportedOperationException ("Attributes not supported : " + type);
+
+    return (A) new AppleFileAttributes (getNode (path));
+  }
+
+  // Reads "basic:..." or "apple:..." attributes. A missing view is basic, and * asks
+  // for every attribute in the view.
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Map<String, Object> readAttributes (Path path, String attributes,
+      LinkOption... options) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    int pos = attributes.indexOf (':');
+    String view = pos < 0 ? "basic" : attributes.substring (0, pos);
+    String names = attributes.substring (pos + 1);
+
+    AppleFileAttributes fileAttributes = new AppleFileAttributes (getNode (path));
+    Map<String, Object> available;
+    if ("basic".equals (view))
+      available = fileAttributes.getBasicAttributes ();
+    else if (AppleFileSystem.VIEW_NAME.equals (view))
+      available = fileAttributes.getAppleAttributes ();
+    else
+      throw new UnsupportedOperationException ("View not supported : " + view);
+
+    if ("*".equals (names))
+      return new LinkedHashMap<> (available);
+
+    Map<String, Object> selected = new LinkedHashMap<> ();
+    for (String name : names.split (","))
+      if (available.containsKey (name))
+        selected.put (name, available.get (name));
+      else if ("basic".equals (view))
+        throw new IllegalArgumentException ("Unknown attribute : " + name);
+
+    return selected;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void setAttribute (Path path, String attribute, Object value,
+      LinkOption... options) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new ReadOnlyFileSystemException ();
+  }
+}
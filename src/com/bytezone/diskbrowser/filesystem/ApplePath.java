@@ -0,0 +1,306 @@
+package com.bytezone.diskbrowser.filesystem;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent.Kind;
+import java.nio.file.WatchEvent.Modifier;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A path inside a disk image. Names are the parts of each file's unique name, so a
+// ProDOS file is /VOLUME/DIR/FILE and a DOS file is /FILE (see
+// AppleFileSystem.encodeName () for names that contain a /).
+// -----------------------------------------------------------------------------------//
+class ApplePath implements Path
+// -----------------------------------------------------------------------------------//
+{
+  private static final String[] NO_NAMES = new String[0];
+
+  private final AppleFileSystem fileSystem;
+  private final String path;
+  private final String[] names;
+
+  // ---------------------------------------------------------------------------------//
+  ApplePath (AppleFileSystem fileSystem, String path)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.fileSystem = fileSystem;
+
+    String trimmed = path.replaceAll ("/+", "/");
+    if (trimmed.length () > 1 && trimmed.endsWith ("/"))
+      trimmed = trimmed.substring (0, trimmed.length () - 1);
+    this.path = trimmed;
+
+    String relative = trimmed.startsWith ("/") ? trimmed.substring (1) : trimmed;
+    names = relative.isEmpty () ? NO_NAMES : relative.split ("/");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private ApplePath (AppleFileSystem fileSystem, boolean absolute, String[] names)
+  // ---------------------------------------------------------------------------------//
+  {
+    this (fileSystem, (absolute ? "/" : "") + String.join ("/", names));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static ApplePath toApplePath (Path path)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (path == null)
+      throw new NullPointerException ();
+    if (!(path instanceof ApplePath))
+      throw new ProviderMismatchException ();
+    return (ApplePath) path;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public AppleFileSystem getFileSystem ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return fileSystem;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isAbsolute ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return path.startsWith ("/");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path getRoot ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return isAbsolute () ? new ApplePath (fileSystem, "/") : null;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path getFileName ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (names.length == 0)
+      return path.isEmpty () ? this : null;
+    return new ApplePath (fileSystem, names[names.length - 1]);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path getParent ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (names.length == 0 || (names.length == 1 && !isAbsolute ()))
+      return null;
+    return new ApplePath (fileSystem, isAbsolute (),
+        Arrays.copyOf (names, names.length - 1));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int getNameCount ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return path.isEmpty () ? 1 : names.length;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path getName (int index)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (index == 0 && path.isEmpty ())
+      return this;
+    if (index < 0 || index >= names.length)
+      throw new IllegalArgumentException ("Invalid name index : " + index);
+    return new ApplePath (fileSystem, names[index]);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path subpath (int beginIndex, int endIndex)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (beginIndex < 0 || endIndex > names.length || beginIndex >= endIndex)
+      throw new IllegalArgumentException (
+          "Invalid subpath : " + beginIndex + " to " + endIndex);
+    return new ApplePath (fileSystem, false,
+        Arrays.copyOfRange (names, beginIndex, endIndex));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean startsWith (Path other)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!(other instanceof ApplePath) || other.getFileSystem () != fileSystem)
+      return false;
+
+    ApplePath that = (ApplePath) other;
+    if (that.isAbsolute () != isAbsolute () || that.names.length > names.length)
+      return false;
+
+    for (int i = 0; i < that.names.length; i++)
+      if (!names[i].equals (that.names[i]))
+        return false;
+
+    return true;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean endsWith (Path other)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!(other instanceof ApplePath) || other.getFileSystem () != fileSystem)
+      return false;
+
+    ApplePath that = (ApplePath) other;
+    if (that.isAbsolute ())
+      return equals (that);
+    if (that.names.length > names.length)
+      return false;
+
+    int offset = names.length - that.names.length;
+    for (int i = 0; i < that.names.length; i++)
+      if (!names[offset + i].equals (that.names[i]))
+        return false;
+
+    return true;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path normalize ()
+  // ---------------------------------------------------------------------------------//
+  {
+    List<String> normal = new ArrayList<> ();
+    for (String name : names)
+    {
+      if (".".equals (name))
+        continue;
+      if ("..".equals (name) && !normal.isEmpty ()
+          && !"..".equals (normal.get (normal.size () - 1)))
+        normal.remove (normal.size () - 1);
+      else if (!"..".equals (name) || !isAbsolute ())       // no parent of the root
+        normal.add (name);
+    }
+
+    return new ApplePath (fileSystem, isAbsolute (), normal.toArray (NO_NAMES));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path resolve (Path other)
+  // ---------------------------------------------------------------------------------//
+  {
+    ApplePath that = toApplePath (other);
+    if (that.isAbsolute ())
+      return that;
+    if (that.path.isEmpty ())
+      return this;
+    if (path.isEmpty ())
+      return that;
+
+    return new ApplePath (fileSystem, path + "/" + that.path);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path relativize (Path other)
+  // ---------------------------------------------------------------------------------//
+  {
+    ApplePath that = toApplePath (other);
+    if (that.isAbsolute () != isAbsolute ())
+      throw new IllegalArgumentException ("Cannot relativize " + other + " to " + path);
+
+    int common = 0;
+    while (common < names.length && common < that.names.length
+        && names[common].equals (that.names[common]))
+      common++;
+
+    List<String> relative = new ArrayList<> ();
+    for (int i = common; i < names.length; i++)
+      relative.add ("..");
+    for (int i = common; i < that.names.length; i++)
+      relative.add (that.names[i]);
+
+    return new ApplePath (fileSystem, false, relative.toArray (NO_NAMES));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public URI toUri ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return fileSystem.toUri (((ApplePath) toAbsolutePath ()).path);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path toAbsolutePath ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return isAbsolute () ? this : new ApplePath (fileSystem, "/" + path);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Path toRealPath (LinkOption... options) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    Path realPath = toAbsolutePath ().normalize ();
+    fileSystem.provider ().checkAccess (realPath);
+    return realPath;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public WatchKey register (WatchService watcher, Kind<?>[] events,
+      Modifier... modifiers) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    throw new UnsupportedOperationException ("Disk images cannot be watched");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int compareTo (Path other)
+  // ---------------------------------------------------------------------------------//
+  {
+    return path.compareTo (toApplePath (other).path);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean equals (Object other)
+  // ---------------------------------------------------------------------------------//
+  {
+    return other instanceof ApplePath && ((ApplePath) other).fileSystem == fileSystem
+        && ((ApplePath) other).path.equals (path);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int hashCode ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return path.hashCode ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return path;
+  }
+}
@@ -155,6 +155,7 @@ class AppleDiskTab extends AbstractTab
   private DefaultMutableTreeNode findNode (String nodeName)
   // ---------------------------------------------------------------------------------//
   {
+    disk.loadPath (nodeName);             // adds any unread directories on the path
     DefaultMutableTreeNode rootNode = getRootNode ();
 
     // check for multi-volume disk (only search the current branch)
@@ -428,7 +428,7 @@ class CatalogPanel extends JTabbedPane
       DefaultMutableTreeNode selectedNode =
           (DefaultMutableTreeNode) tp.getLastPathComponent ();
       FileNode node = (FileNode) selectedNode.getUserObject ();
-      if (node.file.isDirectory ())
+      if (node.file.isDirectory () || node.isArchive ())
       {
         //        lister.catalogLister.setNode (selectedNode);
       }
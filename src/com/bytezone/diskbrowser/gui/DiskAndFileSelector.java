@@ -73,7 +73,7 @@ class DiskAndFileSelector
   void fireDiskSelectionEvent (FileNode node)
   // ---------------------------------------------------------------------------------//
   {
-    if (node.file.isDirectory ())
+    if (node.file.isDirectory () || node.isArchive ())
     {
       fireFileNodeSelectionEvent (node);
       currentDisk = null;
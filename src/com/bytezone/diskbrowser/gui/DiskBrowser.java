@@ -82,6 +82,8 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     ShowFreeSectorsAction showFreeAction =
         new ShowFreeSectorsAction (menuHandler, diskLayoutPanel);
     CloseTabAction closeTabAction = new CloseTabAction (catalogPanel);
+    LearnSignaturesAction learnSignaturesAction =
+        new LearnSignaturesAction (menuHandler.learnSignaturesItem);
 
     // add action buttons to toolbar
     toolBar.add (rootDirectoryAction);
@@ -140,8 +142,10 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     menuHandler.showFreeSectorsItem.setAction (showFreeAction);
     menuHandler.duplicateItem.setAction (duplicateAction);
     menuHandler.closeTabItem.setAction (closeTabAction);
+    menuHandler.learnSignaturesItem.setAction (learnSignaturesAction);
 
     addQuitListener (rootDirectoryAction);
+    addQuitListener (learnSignaturesAction);
     addQuitListener (menuHandler);
     addQuitListener (catalogPanel);
     addQuitListener (this);
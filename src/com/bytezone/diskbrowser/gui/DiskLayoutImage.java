@@ -53,6 +53,7 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
     //    https://stackoverflow.com/questions/2451990/setopaquetrue-false-java
 
     addKeyListener (new MyKeyListener ());
+    setToolTipText ("");                  // registers with the ToolTipManager
   }
 
   // ---------------------------------------------------------------------------------//
@@ -150,6 +151,39 @@ class DiskLayoutImage extends DiskPanel implements Scrollable, RedoListener
       }
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getToolTipText (MouseEvent e)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (formattedDisk == null)
+      return null;
+
+    int x = e.getX () / blockWidth;
+    int y = e.getY () / blockHeight;
+    if (x >= gridWidth)
+      return null;
+
+    int blockNo = y * gridWidth + x;
+    Disk disk = formattedDisk.getDisk ();
+    if (!disk.isValidAddress (blockNo))
+      return null;
+
+    DiskAddress da = disk.getDiskAddress (blockNo);
+    SectorType type = formattedDisk.getSectorType (da);
+    String owner = formattedDisk.getSectorFilename (da);
+
+    StringBuilder text = new StringBuilder (String.format ("%04X", blockNo));
+    if (type != null)
+      text.append ("  " + type.name);
+    if (owner != null && !owner.isEmpty ())
+      text.append ("  " + owner);
+    if (formattedDisk.isSectorCrossLinked (da))
+      text.append (" (cross-linked)");
+
+    return text.toString ();
+  }
+
   // ---------------------------------------------------------------------------------//
   private void drawBlock (Graphics2D g, SectorType type, int x, int y, boolean flagFree,
       boolean selected)
@@ -108,6 +108,17 @@ class DiskLayoutPanel extends JPanel
       }
     });
 
+    // ... or if it finishes reading its catalog in the background
+    disk.addActionListener (new ActionListener ()
+    {
+      @Override
+      public void actionPerformed (ActionEvent e)
+      {
+        diskLayoutImage.repaint ();
+        legendPanel.repaint ();             // the free block counts are now known
+      }
+    });
+
     repaint ();
   }
 
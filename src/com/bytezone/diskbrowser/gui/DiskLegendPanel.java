@@ -82,6 +82,14 @@ class DiskLegendPanel extends DiskPanel
     }
 
     int y = ++count / 2 * lineHeight + TOP * 2 + 5;
+
+    // the counts need the whole catalog, which may still be read in the background
+    if (!formattedDisk.isCatalogComplete ())
+    {
+      g.drawString ("Checking the free sectors ...", 10, y);
+      return;
+    }
+
     int val = formattedDisk.falseNegativeBlocks ();
     if (val > 0)
     {
@@ -156,7 +156,8 @@ class FileSystemTab extends AbstractTab
       if (absolutePath.equals (path))
         return childNode;
 
-      if (fn2.file.isDirectory () && absolutePath.startsWith (path))
+      boolean container = fn2.file.isDirectory () || fn2.isArchive ();
+      if (container && absolutePath.startsWith (path))
       {
         if (absolutePath.charAt (path.length ()) == File.separatorChar)
         {
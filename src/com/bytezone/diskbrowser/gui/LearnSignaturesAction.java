@@ -0,0 +1,86 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.prefs.Preferences;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.JMenuItem;
+
+import com.bytezone.diskbrowser.disk.BootSignatures;
+
+// Records the format of each floppy that is opened so that the next time its boot
+// sector is seen DiskFactory can go straight to the right format check. The learned
+// table is kept in the user's home folder.
+// -----------------------------------------------------------------------------------//
+class LearnSignaturesAction extends AbstractAction implements QuitListener
+// -----------------------------------------------------------------------------------//
+{
+  private static final String PREFS_LEARN_SIGNATURES = "learnSignatures";
+  private static final Path SIGNATURES_FILE =
+      Paths.get (System.getProperty ("user.home"), ".diskbrowser-signatures.txt");
+
+  private final JMenuItem menuItem;
+
+  // ---------------------------------------------------------------------------------//
+  LearnSignaturesAction (JMenuItem menuItem)
+  // ---------------------------------------------------------------------------------//
+  {
+    super ("Learn boot signatures");
+    putValue (Action.SHORT_DESCRIPTION,
+        "Remember the format of each disk to speed up opening it again");
+    this.menuItem = menuItem;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void actionPerformed (ActionEvent e)
+  // ---------------------------------------------------------------------------------//
+  {
+    BootSignatures.setLearning (menuItem.isSelected ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void quit (Preferences prefs)
+  // ---------------------------------------------------------------------------------//
+  {
+    boolean learning = BootSignatures.isLearning ();
+    prefs.putBoolean (PREFS_LEARN_SIGNATURES, learning);
+
+    if (learning)
+      try
+      {
+        BootSignatures.save (SIGNATURES_FILE);
+      }
+      catch (IOException e)
+      {
+        System.out.println ("Unable to save signatures : " + e.getMessage ());
+      }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void restore (Preferences prefs)
+  // ---------------------------------------------------------------------------------//
+  {
+    boolean learning = prefs.getBoolean (PREFS_LEARN_SIGNATURES, false);
+    menuItem.setSelected (learning);
+    BootSignatures.setLearning (learning);
+
+    // signatures learned in earlier sessions are used whether or not learning is on
+    if (Files.exists (SIGNATURES_FILE))
+      try
+      {
+        BootSignatures.load (SIGNATURES_FILE);
+      }
+      catch (IOException e)
+      {
+        System.out.println ("Unable to load signatures : " + e.getMessage ());
+      }
+  }
+}
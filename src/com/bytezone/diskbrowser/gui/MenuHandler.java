@@ -117,6 +117,7 @@ class MenuHandler implements DiskSelectionListener, FileSelectionListener, QuitL
   final JMenuItem colourQuirksItem = new JCheckBoxMenuItem ("Colour quirks");
   final JMenuItem monochromeItem = new JCheckBoxMenuItem ("Monochrome");
   final JMenuItem debuggingItem = new JCheckBoxMenuItem ("Debugging");
+  final JMenuItem learnSignaturesItem = new JCheckBoxMenuItem ();
   final JMenuItem nextPaletteItem = new JMenuItem ("Next Palette");
   final JMenuItem prevPaletteItem = new JMenuItem ("Previous Palette");
   final JMenuItem scale1Item = new JRadioButtonMenuItem ("Scale 1");
@@ -180,6 +181,7 @@ class MenuHandler implements DiskSelectionListener, FileSelectionListener, QuitL
 
     fileMenu.add (duplicateItem);
     fileMenu.add (debuggingItem);
+    fileMenu.add (learnSignaturesItem);
 
     formatMenu.add (lineWrapItem);
     formatMenu.add (showCatalogItem);
@@ -3,11 +3,11 @@ package com.bytezone.diskbrowser.gui;
 import java.awt.event.ActionEvent;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 
+import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
 import com.bytezone.diskbrowser.utilities.DefaultAction;
 
@@ -37,23 +37,41 @@ class SaveTempFileAction extends DefaultAction
 
     JFileChooser fileChooser = new JFileChooser ();
     fileChooser.setDialogTitle ("Save converted disk");
-    String name = disk.getName ();
-    fileChooser.setSelectedFile (new File (name + ".dsk"));
+    Disk appleDisk = disk.getDisk ();
+    String name = getBaseName (disk.getName ());
+    fileChooser.setSelectedFile (new File (name + "." + appleDisk.getImageSuffix ()));
     if (fileChooser.showSaveDialog (null) == JFileChooser.APPROVE_OPTION)
     {
       File file = fileChooser.getSelectedFile ();
       try
       {
-        Files.copy (disk.getDisk ().getFile ().toPath (), file.toPath ());
+        appleDisk.saveImage (file.toPath ());
         JOptionPane.showMessageDialog (null, "Disk saved");
       }
       catch (IOException e)
       {
         e.printStackTrace ();
+        JOptionPane.showMessageDialog (null, "Disk not saved : " + e.getMessage (),
+            "Save converted disk", JOptionPane.ERROR_MESSAGE);
       }
     }
   }
 
+  // the disk's name without its compression and image suffixes
+  // ---------------------------------------------------------------------------------//
+  private static String getBaseName (String name)
+  // ---------------------------------------------------------------------------------//
+  {
+    String lcName = name.toLowerCase ();
+    if (lcName.endsWith (".gz"))
+      name = name.substring (0, name.length () - 3);
+    else if (lcName.endsWith (".zip"))
+      name = name.substring (0, name.length () - 4);
+
+    int dotPos = name.lastIndexOf ('.');
+    return dotPos > 0 ? name.substring (0, dotPos) : name;
+  }
+
   // ---------------------------------------------------------------------------------//
   void setDisk (FormattedDisk disk)
   // ---------------------------------------------------------------------------------//
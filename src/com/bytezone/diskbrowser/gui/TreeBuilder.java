@@ -2,10 +2,14 @@ package com.bytezone.diskbrowser.gui;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
@@ -73,11 +77,53 @@ class TreeBuilder
         continue;
       if (file.isDirectory ())
         parentNode.add (createNode (file, true));
+      else if (isArchive (file))
+        parentNode.add (createNode (file, true));
       else if (Utility.validFileType (file.getName ()) && file.length () > 0)
         parentNode.add (createNode (file, false));
     }
   }
 
+  // only the zip's central directory is read here, entries are inflated when selected
+  // ---------------------------------------------------------------------------------//
+  private void addEntries (DefaultMutableTreeNode parentNode, File zipFile)
+  // ---------------------------------------------------------------------------------//
+  {
+    try (ZipFile zip = new ZipFile (zipFile))
+    {
+      Enumeration<? extends ZipEntry> entries = zip.entries ();
+      while (entries.hasMoreElements ())
+      {
+        ZipEntry entry = entries.nextElement ();
+        if (entry.isDirectory () || entry.getSize () == 0)
+          continue;
+        if (!Utility.validFileType (new File (entry.getName ()).getName ()))
+          continue;
+
+        FileNode fileNode = new FileNode (zipFile, entry);
+        DefaultMutableTreeNode newNode = new DefaultMutableTreeNode (fileNode);
+        fileNode.setTreeNode (newNode);
+        newNode.setAllowsChildren (false);
+        parentNode.add (newNode);
+      }
+    }
+    catch (IOException e)
+    {
+      System.out.println ("Error reading zip file : " + zipFile.getAbsolutePath ());
+      System.out.println (e.getMessage ());
+    }
+
+    if (parentNode.getChildCount () == 0)
+      System.out.println ("Empty archive : " + zipFile.getAbsolutePath ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static boolean isArchive (File file)
+  // ---------------------------------------------------------------------------------//
+  {
+    return file.getName ().toLowerCase ().endsWith (".zip") && file.isFile ();
+  }
+
   // ---------------------------------------------------------------------------------//
   private DefaultMutableTreeNode createNode (File file, boolean allowsChildren)
   // ---------------------------------------------------------------------------------//
@@ -116,6 +162,8 @@ class TreeBuilder
   {
     DefaultMutableTreeNode parentNode;
     public final File file;
+    private final File archive;             // the zip file containing this entry
+    private final ZipEntry entry;
     private static final int MAX_NAME_LENGTH = 36;
     private static final int SUFFIX_LENGTH = 12;
     private static final int PREFIX_LENGTH = MAX_NAME_LENGTH - SUFFIX_LENGTH - 3;
@@ -128,6 +176,24 @@ class TreeBuilder
     // -------------------------------------------------------------------------------//
     {
       this.file = file;
+      this.archive = null;
+      this.entry = null;
+    }
+
+    // -------------------------------------------------------------------------------//
+    FileNode (File archive, ZipEntry entry)
+    // -------------------------------------------------------------------------------//
+    {
+      this.file = new File (archive, entry.getName ());
+      this.archive = archive;
+      this.entry = entry;
+    }
+
+    // -------------------------------------------------------------------------------//
+    boolean isArchive ()
+    // -------------------------------------------------------------------------------//
+    {
+      return entry == null && TreeBuilder.isArchive (file);
     }
 
     // -------------------------------------------------------------------------------//
@@ -141,7 +207,10 @@ class TreeBuilder
     void readFiles ()
     // -------------------------------------------------------------------------------//
     {
-      addFiles (parentNode, file);
+      if (isArchive ())
+        addEntries (parentNode, file);
+      else
+        addFiles (parentNode, file);
     }
 
     // -------------------------------------------------------------------------------//
@@ -151,7 +220,8 @@ class TreeBuilder
       if (formattedDisk == null)
         try
         {
-          formattedDisk = DiskFactory.createDisk (file);
+          formattedDisk = entry == null ? DiskFactory.createDisk (file)
+              : DiskFactory.createDisk (archive, entry.getName ());
         }
         catch (FileFormatException e)
         {
@@ -194,6 +264,9 @@ class TreeBuilder
     public String getText ()
     // -------------------------------------------------------------------------------//
     {
+      if (isArchive ())
+        return getArchiveText ();
+
       StringBuilder text = new StringBuilder ();
 
       String home = System.getProperty ("user.home");
@@ -231,6 +304,50 @@ class TreeBuilder
       return text.toString ();
     }
 
+    // -------------------------------------------------------------------------------//
+    private String getArchiveText ()
+    // -------------------------------------------------------------------------------//
+    {
+      StringBuilder text = new StringBuilder ();
+
+      String home = System.getProperty ("user.home");
+      String path = file.getAbsolutePath ();
+      if (path.startsWith (home))
+        path = "~" + path.substring (home.length ());
+      text.append ("Archive : " + path + "\n\n");
+      text.append ("          File names                       "
+          + "      Date               Size  Type\n");
+      text.append ("   ----------------------------------------"
+          + "  -----------  --------------  ---------\n");
+
+      try (ZipFile zip = new ZipFile (file))
+      {
+        Enumeration<? extends ZipEntry> entries = zip.entries ();
+        while (entries.hasMoreElements ())
+        {
+          ZipEntry entry = entries.nextElement ();
+          if (entry.isDirectory ())
+            continue;
+          String name = entry.getName ();
+
+          Date d = new Date (entry.getTime ());
+          int pos = name.lastIndexOf ('.');
+          String type = pos > 0 ? name.substring (pos) : "";
+          String size = String.format ("%,14d", entry.getSize ());
+          text.append (String.format ("   %-40.40s  %s  %-14s  %s%n", name,
+              sdf.format (d).replace (".", ""), size, type));
+        }
+      }
+      catch (IOException e)
+      {
+        text.append (e.getMessage () + "\n");
+      }
+
+      if (text.length () > 0)
+        text.deleteCharAt (text.length () - 1);
+      return text.toString ();
+    }
+
     // -------------------------------------------------------------------------------//
     @Override
     public String getAssembler ()
@@ -4,11 +4,16 @@ package com.bytezone.diskbrowser.nib;
 interface ByteTranslator
 // -----------------------------------------------------------------------------------//
 {
+  // decode () returns this for a byte that can't be stored on a disk. It has a bit
+  // that no valid value has, so a sector's values can be ORed together and checked
+  // once at the end.
+  static final int INVALID = 0x80;
+
   // ---------------------------------------------------------------------------------//
   abstract byte encode (byte b);
   // ---------------------------------------------------------------------------------//
 
   // ---------------------------------------------------------------------------------//
-  abstract byte decode (byte b) throws DiskNibbleException;
+  abstract int decode (byte b);
   // ---------------------------------------------------------------------------------//
 }
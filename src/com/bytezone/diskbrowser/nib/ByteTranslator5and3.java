@@ -1,5 +1,7 @@
 package com.bytezone.diskbrowser.nib;
 
+import java.util.Arrays;
+
 // -----------------------------------------------------------------------------------//
 class ByteTranslator5and3 implements ByteTranslator
 // -----------------------------------------------------------------------------------//
@@ -13,32 +15,20 @@ class ByteTranslator5and3 implements ByteTranslator
         (byte) 0xEE, (byte) 0xEF, (byte) 0xF5, (byte) 0xF6, (byte) 0xF7, (byte) 0xFA,
         (byte) 0xFB, (byte) 0xFD, (byte) 0xFE, (byte) 0xFF };
 
-  private static final int SKIP = 0xAB;
-  private static byte[] readTranslateTable5and3 = new byte[256 - SKIP];
+  // one entry for every disk byte, INVALID unless it is in the write table
+  private static byte[] readTranslateTable5and3 = new byte[256];
 
   private static boolean debug = false;
 
   static
   {
+    Arrays.fill (readTranslateTable5and3, (byte) INVALID);
     for (int i = 0; i < writeTranslateTable5and3.length; i++)
     {
-      int j = (writeTranslateTable5and3[i] & 0xFF) - SKIP;   // skip first 171 blanks
-      readTranslateTable5and3[j] = (byte) (i + 1);           // offset by 1 to avoid zero
+      readTranslateTable5and3[writeTranslateTable5and3[i] & 0xFF] = (byte) i;
       if (debug)
-        System.out.printf ("%02X  %02X  %02X%n", i, writeTranslateTable5and3[i], j);
+        System.out.printf ("%02X  %02X%n", i, writeTranslateTable5and3[i]);
     }
-    if (debug)
-      for (int j = 0; j < readTranslateTable5and3.length; j++)
-      {
-        int target = readTranslateTable5and3[j] - 1;
-        if (target >= 0)
-        {
-          int value = writeTranslateTable5and3[target] & 0xFF;
-          System.out.printf ("%02X -> %02X%n", j, value);
-        }
-        else
-          System.out.printf ("%02X%n", j);
-      }
   }
 
   // ---------------------------------------------------------------------------------//
@@ -52,15 +42,9 @@ class ByteTranslator5and3 implements ByteTranslator
 
   // ---------------------------------------------------------------------------------//
   @Override
-  public byte decode (byte b) throws DiskNibbleException
+  public int decode (byte b)
   // ---------------------------------------------------------------------------------//
   {
-    int val = (b & 0xFF) - SKIP;                              // 0 - 84
-    if (val < 0 || val > 84)
-      throw new DiskNibbleException ("5&3 val: " + val);
-    byte trans = (byte) (readTranslateTable5and3[val] - 1);   // 0 - 31  (5 bits)
-    if (trans < 0 || trans > 31)
-      throw new DiskNibbleException ("5&3 trans: " + trans);
-    return trans;
+    return readTranslateTable5and3[b & 0xFF] & 0xFF;        // 0 - 31, or INVALID
   }
 }
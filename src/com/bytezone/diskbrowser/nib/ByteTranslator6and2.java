@@ -1,5 +1,7 @@
 package com.bytezone.diskbrowser.nib;
 
+import java.util.Arrays;
+
 // -----------------------------------------------------------------------------------//
 class ByteTranslator6and2 implements ByteTranslator
 // -----------------------------------------------------------------------------------//
@@ -19,20 +21,18 @@ class ByteTranslator6and2 implements ByteTranslator
         (byte) 0xF5, (byte) 0xF6, (byte) 0xF7, (byte) 0xF9, (byte) 0xFA, (byte) 0xFB,
         (byte) 0xFC, (byte) 0xFD, (byte) 0xFE, (byte) 0xFF };
 
-  private static final int SKIP = 0x96;
-  private static byte[] readTranslateTable6and2 = new byte[256 - SKIP];
+  // one entry for every disk byte, INVALID unless it is in the write table
+  private static byte[] readTranslateTable6and2 = new byte[256];
 
   static
   {
+    Arrays.fill (readTranslateTable6and2, (byte) INVALID);
     for (int i = 0; i < writeTranslateTable6and2.length; i++)
-    {
-      int j = (writeTranslateTable6and2[i] & 0xFF) - SKIP;   // skip first 150 blanks
-      readTranslateTable6and2[j] = (byte) (i + 1);           // offset by 1 to avoid zero
-    }
+      readTranslateTable6and2[writeTranslateTable6and2[i] & 0xFF] = (byte) i;
 
     if (false)
       for (int i = 0; i < readTranslateTable6and2.length; i++)
-        System.out.printf ("%02X  %02X%n", i + SKIP, readTranslateTable6and2[i] - 1);
+        System.out.printf ("%02X  %02X%n", i, readTranslateTable6and2[i]);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -40,20 +40,14 @@ class ByteTranslator6and2 implements ByteTranslator
   public byte encode (byte b)
   // ---------------------------------------------------------------------------------//
   {
-    return writeTranslateTable6and2[(b & 0xFC)];
+    return writeTranslateTable6and2[(b & 0xFF) >>> 2];      // top 6 bits
   }
 
   // ---------------------------------------------------------------------------------//
   @Override
-  public byte decode (byte b) throws DiskNibbleException
+  public int decode (byte b)
   // ---------------------------------------------------------------------------------//
   {
-    int val = (b & 0xFF) - SKIP;                              // 0 - 105
-    if (val < 0 || val > 105)
-      throw new DiskNibbleException ("6&2 val: " + val);
-    byte trans = (byte) (readTranslateTable6and2[val] - 1);   // 0 - 63  (6 bits)
-    if (trans < 0 || trans > 63)
-      throw new DiskNibbleException ("6&2 trans: " + trans);
-    return trans;
+    return readTranslateTable6and2[b & 0xFF] & 0xFF;        // 0 - 63, or INVALID
   }
 }
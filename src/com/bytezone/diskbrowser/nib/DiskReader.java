@@ -8,9 +8,11 @@ abstract class DiskReader
   static final int BLOCK_SIZE = 512;
   static final byte[] dataPrologue = { (byte) 0xD5, (byte) 0xAA, (byte) 0xAD };
 
-  static DiskReader reader13;
-  static DiskReader reader16;
-  static DiskReader readerGCR;
+  // decodeSector () status
+  static final int OK = 0;
+  static final int INVALID_NIBBLE = 1;        // a byte that can't be stored on a disk
+  static final int CHECKSUM_FAILED = 2;       // decoded, but the checksum doesn't match
+  static final int TOO_SHORT = 3;             // the buffer ends inside the sector
 
   final int sectorsPerTrack;
 
@@ -21,37 +23,53 @@ abstract class DiskReader
     this.sectorsPerTrack = sectorsPerTrack;
   }
 
+  // A reader decodes into its own scratch buffers, so each track that is being decoded
+  // needs a reader of its own.
   // ---------------------------------------------------------------------------------//
-  static DiskReader getInstance (int sectors)
+  static DiskReader create (int sectors)
   // ---------------------------------------------------------------------------------//
   {
     switch (sectors)
     {
       case 13:
-        if (reader13 == null)
-          reader13 = new DiskReader13Sector ();
-        return reader13;
+        return new DiskReader13Sector ();
 
       case 16:
-        if (reader16 == null)
-          reader16 = new DiskReader16Sector ();
-        return reader16;
+        return new DiskReader16Sector ();
 
       case 0:
-        if (readerGCR == null)
-          readerGCR = new DiskReaderGCR ();
-        return readerGCR;
+        return new DiskReaderGCR ();
 
       default:
         return null;
     }
   }
 
+  // bytes that decodeSector () writes
   // ---------------------------------------------------------------------------------//
-  byte[] decodeSector (byte[] buffer) throws DiskNibbleException
+  int getDecodedSize ()
   // ---------------------------------------------------------------------------------//
   {
-    return decodeSector (buffer, 0);
+    return SECTOR_SIZE;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static String getStatusText (int status)
+  // ---------------------------------------------------------------------------------//
+  {
+    switch (status)
+    {
+      case OK:
+        return "OK";
+      case INVALID_NIBBLE:
+        return "Invalid nibble";
+      case CHECKSUM_FAILED:
+        return "Checksum failed";
+      case TOO_SHORT:
+        return "Sector too short";
+      default:
+        return "Unknown status : " + status;
+    }
   }
 
   // reverse 2 bits - 0 <= bits <= 3
@@ -62,8 +80,13 @@ abstract class DiskReader
     return bits == 1 ? 2 : bits == 2 ? 1 : bits;
   }
 
+  // Decodes the data field that starts at offset into decodedBuffer, and returns one
+  // of the status codes above. Invalid nibbles are only checked for once the whole
+  // field has been translated, and the checksum once it has been decoded, so damaged
+  // sectors cost no more than good ones. The sector is still written when only the
+  // checksum fails.
   // ---------------------------------------------------------------------------------//
-  abstract byte[] decodeSector (byte[] buffer, int offset) throws DiskNibbleException;
+  abstract int decodeSector (byte[] buffer, int offset, byte[] decodedBuffer);
   // ---------------------------------------------------------------------------------//
 
   // ---------------------------------------------------------------------------------//
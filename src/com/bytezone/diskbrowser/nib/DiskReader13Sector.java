@@ -21,14 +21,22 @@ class DiskReader13Sector extends DiskReader
 
   // ---------------------------------------------------------------------------------//
   @Override
-  byte[] decodeSector (byte[] buffer, int offset) throws DiskNibbleException
+  int decodeSector (byte[] buffer, int offset, byte[] decodedBuffer)
   // ---------------------------------------------------------------------------------//
   {
-    byte[] decodedBuffer = new byte[SECTOR_SIZE];
+    if (offset < 0 || offset + BUFFER_WITH_CHECKSUM_SIZE > buffer.length)
+      return TOO_SHORT;
 
     // convert legal disk values to actual 5 bit values
+    int invalid = 0;
     for (int i = 0; i < BUFFER_WITH_CHECKSUM_SIZE; i++)             // 411 bytes
-      decodeA[i] = (byte) (byteTranslator.decode (buffer[offset++]) << 3);
+    {
+      int value = byteTranslator.decode (buffer[offset++]);
+      invalid |= value;
+      decodeA[i] = (byte) (value << 3);
+    }
+    if ((invalid & ByteTranslator.INVALID) != 0)
+      return INVALID_NIBBLE;
 
     // reconstruct 410 bytes each with 5 bits
     byte chk = 0;
@@ -37,8 +45,7 @@ class DiskReader13Sector extends DiskReader
       chk = decodeB[i] = (byte) (decodeA[ptr++] ^ chk);
     for (int i = 0; i < 256; i++)                                   // 256 bytes
       chk = decodeB[i] = (byte) (decodeA[ptr++] ^ chk);
-    if ((chk ^ decodeA[ptr]) != 0)
-      throw new DiskNibbleException ("Checksum failed");
+    boolean checksumOK = (chk ^ decodeA[ptr]) == 0;
 
     // rearrange 410 bytes into 256
     byte[] k = new byte[8];
@@ -71,7 +78,7 @@ class DiskReader13Sector extends DiskReader
     // add last byte
     decodedBuffer[ptr] = (byte) (decodeB[255] | ((decodeB[409] & 0x3F) >>> 3));
 
-    return decodedBuffer;
+    return checksumOK ? OK : CHECKSUM_FAILED;
   }
 
   // ---------------------------------------------------------------------------------//
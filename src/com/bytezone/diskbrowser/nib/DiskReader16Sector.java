@@ -24,24 +24,29 @@ class DiskReader16Sector extends DiskReader
 
   // ---------------------------------------------------------------------------------//
   @Override
-  byte[] decodeSector (byte[] buffer, int offset) throws DiskNibbleException
+  int decodeSector (byte[] buffer, int offset, byte[] decodedBuffer)
   // ---------------------------------------------------------------------------------//
   {
-    // rearrange 342 bytes into 256
-    byte[] decodedBuffer = new byte[SECTOR_SIZE];             // 256 bytes
+    if (offset < 0 || offset + BUFFER_WITH_CHECKSUM_SIZE > buffer.length)
+      return TOO_SHORT;
 
     // convert legal disk values to actual 6 bit values
+    int invalid = 0;
     for (int i = 0; i < BUFFER_WITH_CHECKSUM_SIZE; i++)      // 343 bytes
-      decodeA[i] = (byte) (byteTranslator.decode (buffer[offset++]) << 2);
+    {
+      int value = byteTranslator.decode (buffer[offset++]);
+      invalid |= value;
+      decodeA[i] = (byte) (value << 2);
+    }
+    if ((invalid & ByteTranslator.INVALID) != 0)
+      return INVALID_NIBBLE;
 
     // reconstruct 342 bytes each with 6 bits
     byte chk = 0;
     for (int i = decodeB.length - 1; i >= 0; i--)            // 342 bytes
       chk = decodeB[i] = (byte) (decodeA[i + 1] ^ chk);
-    if ((chk ^ decodeA[0]) != 0)
-      throw new DiskNibbleException ("Checksum failed");
 
-    // move 6 bits into place
+    // rearrange 342 bytes into 256 - move 6 bits into place
     for (int i = 0; i < SECTOR_SIZE; i++)
       decodedBuffer[i] = decodeB[i + 86];
 
@@ -57,7 +62,7 @@ class DiskReader16Sector extends DiskReader
         decodedBuffer[k] |= reverse ((val & 0xC0) >> 6);
     }
 
-    return decodedBuffer;
+    return (chk ^ decodeA[0]) == 0 ? OK : CHECKSUM_FAILED;
   }
 
   // convert 256 data bytes into 342 translated bytes plus a checksum
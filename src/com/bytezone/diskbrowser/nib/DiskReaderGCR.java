@@ -5,6 +5,7 @@ class DiskReaderGCR extends DiskReader
 // -----------------------------------------------------------------------------------//
 {
   static final int TAG_SIZE = 12;
+  private static final int DISK_BYTES = 174 * 4 + 3 + 4;       // data, then checksums
   private final ByteTranslator byteTranslator = new ByteTranslator6and2 ();
 
   // ---------------------------------------------------------------------------------//
@@ -16,12 +17,23 @@ class DiskReaderGCR extends DiskReader
 
   // ---------------------------------------------------------------------------------//
   @Override
-  byte[] decodeSector (byte[] inBuffer, int inPtr) throws DiskNibbleException
+  int getDecodedSize ()
   // ---------------------------------------------------------------------------------//
   {
-    byte[] outBuffer = new byte[BLOCK_SIZE + TAG_SIZE];         // 524 bytes
+    return BLOCK_SIZE + TAG_SIZE;                               // 524 bytes
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  int decodeSector (byte[] inBuffer, int inPtr, byte[] outBuffer)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (inPtr < 0 || inPtr + DISK_BYTES > inBuffer.length)
+      return TOO_SHORT;
+
     int outPtr = 0;
     int[] checksums = new int[3];
+    int invalid = 0;
 
     // decode four disk bytes into three data bytes (174 * 3 + 2 = 524)
     while (true)
@@ -32,9 +44,10 @@ class DiskReaderGCR extends DiskReader
         ++checksums[2];                                         // set bit 0
 
       // 6&2 translation
-      byte d3 = byteTranslator.decode (inBuffer[inPtr++]);      // composite byte
-      byte d0 = byteTranslator.decode (inBuffer[inPtr++]);
-      byte d1 = byteTranslator.decode (inBuffer[inPtr++]);
+      int d3 = byteTranslator.decode (inBuffer[inPtr++]);       // composite byte
+      int d0 = byteTranslator.decode (inBuffer[inPtr++]);
+      int d1 = byteTranslator.decode (inBuffer[inPtr++]);
+      invalid |= d3 | d0 | d1;
 
       // reassemble data bytes
       byte b0 = (byte) (d0 | ((d3 << 2) & 0xC0));
@@ -44,19 +57,24 @@ class DiskReaderGCR extends DiskReader
       outBuffer[outPtr++] = checksum (b0, checksums, 0);
       outBuffer[outPtr++] = checksum (b1, checksums, 1);
 
-      if (outPtr == outBuffer.length)
+      if (outPtr == BLOCK_SIZE + TAG_SIZE)
         break;
 
-      byte d2 = byteTranslator.decode (inBuffer[inPtr++]);      // translate
+      int d2 = byteTranslator.decode (inBuffer[inPtr++]);       // translate
+      invalid |= d2;
       byte b2 = (byte) (d2 | (d3 << 6));                        // reassemble
       outBuffer[outPtr++] = checksum (b2, checksums, 2);        // checksum
     }
 
     // decode four disk bytes into three checksum bytes
-    byte d3 = byteTranslator.decode (inBuffer[inPtr++]);        // composite byte
-    byte d0 = byteTranslator.decode (inBuffer[inPtr++]);
-    byte d1 = byteTranslator.decode (inBuffer[inPtr++]);
-    byte d2 = byteTranslator.decode (inBuffer[inPtr++]);
+    int d3 = byteTranslator.decode (inBuffer[inPtr++]);         // composite byte
+    int d0 = byteTranslator.decode (inBuffer[inPtr++]);
+    int d1 = byteTranslator.decode (inBuffer[inPtr++]);
+    int d2 = byteTranslator.decode (inBuffer[inPtr++]);
+    invalid |= d3 | d0 | d1 | d2;
+
+    if ((invalid & ByteTranslator.INVALID) != 0)
+      return INVALID_NIBBLE;
 
     // reassemble checksums
     byte b0 = (byte) (d0 | ((d3 << 2) & 0xC0));
@@ -67,9 +85,9 @@ class DiskReaderGCR extends DiskReader
     if ((byte) (checksums[0] & 0xFF) != b0        //
         || (byte) (checksums[1] & 0xFF) != b1     //
         || (byte) (checksums[2] & 0xFF) != b2)
-      throw new DiskNibbleException ("Checksum failed");
+      return CHECKSUM_FAILED;
 
-    return outBuffer;
+    return OK;
   }
 
   // ---------------------------------------------------------------------------------//
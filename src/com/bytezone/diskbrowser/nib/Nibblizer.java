@@ -14,21 +14,15 @@ class Nibblizer
 
   private static final int BLOCK_SIZE = 256;
   private static final int RAW_BUFFER_SIZE_DOS_33 = 342;
-  private static final int RAW_BUFFER_SIZE_DOS_32 = 410;
   private static final int BUFFER_WITH_CHECKSUM_SIZE_DOS_33 = RAW_BUFFER_SIZE_DOS_33 + 1;
-  private static final int BUFFER_WITH_CHECKSUM_SIZE_DOS_32 = RAW_BUFFER_SIZE_DOS_32 + 1;
 
   private final ByteTranslator byteTranslator62 = new ByteTranslator6and2 ();
-  private final ByteTranslator byteTranslator53 = new ByteTranslator5and3 ();
-
-  private final byte[] decodeDos33a = new byte[BUFFER_WITH_CHECKSUM_SIZE_DOS_33];
-  private final byte[] decodeDos33b = new byte[RAW_BUFFER_SIZE_DOS_33];
 
   private final byte[] encodeDos33a = new byte[RAW_BUFFER_SIZE_DOS_33];
   private final byte[] encodeDos33b = new byte[BUFFER_WITH_CHECKSUM_SIZE_DOS_33];
 
-  private final byte[] decodeDos32a = new byte[BUFFER_WITH_CHECKSUM_SIZE_DOS_32];
-  private final byte[] decodeDos32b = new byte[RAW_BUFFER_SIZE_DOS_32];
+  private final DiskReader diskReader13 = DiskReader.create (13);
+  private final DiskReader diskReader16 = DiskReader.create (16);
 
   private int sectorsPerTrack;
 
@@ -36,7 +30,10 @@ class Nibblizer
   // processTrack
   // ---------------------------------------------------------------------------------//
 
-  boolean processTrack (int trackNo, int maxTracks, byte[] buffer, byte[] diskBuffer)
+  // decodes the sectors of one track into trackBuffer, which is 13 or 16 sectors long,
+  // and marks each 256-byte block of trackBuffer that was written in blocksFound
+  boolean processTrack (int trackNo, int maxTracks, byte[] buffer, byte[] trackBuffer,
+      boolean[] blocksFound)
   {
     int ptr = 0;
     int totalSectors = 0;
@@ -99,12 +96,12 @@ class Nibblizer
 
         int offset;
         if (sectorsPerTrack == 13)
-          offset = addressField.track * 0x0D00 + addressField.sector * BLOCK_SIZE;
+          offset = addressField.sector * BLOCK_SIZE;
         else
-          offset =
-              addressField.track * 0x1000 + interleave[addressField.sector] * BLOCK_SIZE;
+          offset = interleave[addressField.sector] * BLOCK_SIZE;
 
-        System.arraycopy (dataField.dataBuffer, 0, diskBuffer, offset, BLOCK_SIZE);
+        System.arraycopy (dataField.dataBuffer, 0, trackBuffer, offset, BLOCK_SIZE);
+        blocksFound[offset / BLOCK_SIZE] = true;
 
         if (++totalSectors == sectorsPerTrack)
           break;
@@ -137,116 +134,6 @@ class Nibblizer
     return odds & evens;
   }
 
-  // ---------------------------------------------------------------------------------//
-  // decode5and3
-  // ---------------------------------------------------------------------------------//
-
-  private byte[] decode5and3 (byte[] buffer, int offset)
-  {
-    // rearrange 410 bytes into 256
-    byte[] decodedBuffer = new byte[BLOCK_SIZE];                      // 256 bytes
-
-    try
-    {
-      // convert legal disk values to actual 5 bit values
-      for (int i = 0; i < BUFFER_WITH_CHECKSUM_SIZE_DOS_32; i++)        // 411 bytes
-      {
-        //      System.out.printf ("%,5d  %02X%n", i, buffer[offset]);
-        decodeDos32a[i] = (byte) (byteTranslator53.decode (buffer[offset++]) << 3);
-      }
-
-      // reconstruct 410 bytes each with 5 bits
-      byte chk = 0;
-      int ptr = 0;
-      for (int i = 409; i >= 256; i--)                                  // 154 bytes
-        chk = decodeDos32b[i] = (byte) (decodeDos32a[ptr++] ^ chk);
-      for (int i = 0; i < 256; i++)                                     // 256 bytes
-        chk = decodeDos32b[i] = (byte) (decodeDos32a[ptr++] ^ chk);
-      assert (chk ^ decodeDos32a[ptr]) == 0;
-
-      byte[] k = new byte[8];
-      ptr = 0;
-      final int[] lines = { 0, 51, 102, 153, 204, 256, 307, 358 };      // 255 is skipped
-
-      // process 8 disk bytes at a time, giving 5 valid bytes
-      // do this 51 times, giving 255 bytes
-      for (int i = 50; i >= 0; i--)
-      {
-        for (int j = 0; j < 8; j++)
-          k[j] = decodeDos32b[i + lines[j]];
-
-        k[0] |= (k[5] & 0xE0) >>> 5;
-        k[1] |= (k[6] & 0xE0) >>> 5;
-        k[2] |= (k[7] & 0xE0) >>> 5;
-
-        k[3] |= (k[5] & 0x10) >>> 2;
-        k[3] |= (k[6] & 0x10) >>> 3;
-        k[3] |= (k[7] & 0x10) >>> 4;
-
-        k[4] |= (k[5] & 0x08) >>> 1;
-        k[4] |= (k[6] & 0x08) >>> 2;
-        k[4] |= (k[7] & 0x08) >>> 3;
-
-        for (int j = 0; j < 5; j++)
-          decodedBuffer[ptr++] = k[j];
-      }
-
-      // add last byte
-      decodedBuffer[255] = (byte) (decodeDos32b[255] | (decodeDos32b[409] >>> 3));
-    }
-    catch (Exception e)
-    {
-
-    }
-
-    return decodedBuffer;
-  }
-
-  // ---------------------------------------------------------------------------------//
-  // decode6and2
-  // ---------------------------------------------------------------------------------//
-
-  private byte[] decode6and2 (byte[] buffer, int offset)
-  {
-    // rearrange 342 bytes into 256
-    byte[] decodedBuffer = new byte[BLOCK_SIZE];                    // 256 bytes
-
-    try
-    {
-      // convert legal disk values to actual 6 bit values
-      for (int i = 0; i < BUFFER_WITH_CHECKSUM_SIZE_DOS_33; i++)      // 343 bytes
-        decodeDos33a[i] = (byte) (byteTranslator62.decode (buffer[offset++]) << 2);
-
-      // reconstruct 342 bytes each with 6 bits
-      byte chk = 0;
-      for (int i = decodeDos33b.length - 1; i >= 0; i--)              // 342 bytes
-        chk = decodeDos33b[i] = (byte) (decodeDos33a[i + 1] ^ chk);
-      assert (chk ^ decodeDos33a[0]) == 0;
-
-      // move 6 bits into place
-      for (int i = 0; i < BLOCK_SIZE; i++)
-        decodedBuffer[i] = decodeDos33b[i + 86];
-
-      // reattach each byte's last 2 bits
-      for (int i = 0, j = 86, k = 172; i < 86; i++, j++, k++)
-      {
-        byte val = decodeDos33b[i];
-
-        decodedBuffer[i] |= reverse ((val & 0x0C) >> 2);
-        decodedBuffer[j] |= reverse ((val & 0x30) >> 4);
-
-        if (k < BLOCK_SIZE)
-          decodedBuffer[k] |= reverse ((val & 0xC0) >> 6);
-      }
-    }
-    catch (Exception e)
-    {
-
-    }
-
-    return decodedBuffer;
-  }
-
   // ---------------------------------------------------------------------------------//
   // encode6and2
   // ---------------------------------------------------------------------------------//
@@ -439,10 +326,12 @@ class Nibblizer
       if (matchBytes (buffer, offset, dataPrologue))
       {
         valid = true;
-        if (sectorsPerTrack == 13)
-          dataBuffer = decode5and3 (buffer, offset + 3);
-        else
-          dataBuffer = decode6and2 (buffer, offset + 3);
+        dataBuffer = new byte[BLOCK_SIZE];
+
+        // a sector whose checksum fails is still used, one that can't be decoded is
+        // left as zeroes
+        DiskReader diskReader = sectorsPerTrack == 13 ? diskReader13 : diskReader16;
+        diskReader.decodeSector (buffer, offset + 3, dataBuffer);
       }
       else
       {
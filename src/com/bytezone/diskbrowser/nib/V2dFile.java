@@ -1,9 +1,12 @@
 package com.bytezone.diskbrowser.nib;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 import com.bytezone.diskbrowser.utilities.Utility;
@@ -41,38 +44,45 @@ public class V2dFile
   //  private static final int PRODOS = 1;
 
   private static final int TRACK_LENGTH = 6304;
-
-  private final Nibblizer nibbler;
+  private static final int TRACK_SIZE = 4096;
+  private static final int BLOCK_SIZE = 256;
 
   public final File file;
+  private final byte[] buffer;            // the file, as read or decompressed
   final int tracks;
 
-  final byte[] diskBuffer = new byte[4096 * 35];
+  final byte[] diskBuffer = new byte[TRACK_SIZE * 35];
 
   public V2dFile (File file)
+  {
+    this (file, readFile (file));
+  }
+
+  public V2dFile (File file, byte[] buffer)
   {
     this.file = file;
+    this.buffer = buffer;
     int tracks = 0;
-    nibbler = new Nibblizer ();
+    List<V2dTrack> fullTracks = new ArrayList<> ();
 
     try
     {
       byte[] header = new byte[10];
-      BufferedInputStream in = new BufferedInputStream (new FileInputStream (file));
+      InputStream in = new ByteArrayInputStream (buffer);
       in.read (header);
 
       int diskLength = Utility.getLongBigEndian (header, 0);   // 4 bytes
       String id = HexFormatter.getString (header, 4, 4);       // 4 bytes
       tracks = Utility.getShortBigEndian (header, 8);          // 2 bytes
 
-      assert diskLength + 8 == file.length ();
+      assert diskLength + 8 == buffer.length;
       assert "D5NI".equals (id);
 
       byte[] trackHeader = new byte[4];
-      byte[] trackData = new byte[TRACK_LENGTH];
 
       for (int i = 0; i < tracks; i++)
       {
+        byte[] trackData = new byte[TRACK_LENGTH];
         in.read (trackHeader);
         int trackNumber = Utility.getShortBigEndian (trackHeader, 0);
         int trackLength = Utility.getShortBigEndian (trackHeader, 2);    // 6304
@@ -86,7 +96,7 @@ public class V2dFile
         int halfTrackNo = trackNumber % 4;
 
         if (halfTrackNo == 0)                               // only process full tracks
-          nibbler.processTrack (fullTrackNo, 16, trackData, diskBuffer);
+          fullTracks.add (new V2dTrack (fullTrackNo, trackData));
         else
           System.out.printf ("%s skipping half track %02X / %02X%n", file.getName (),
               fullTrackNo, halfTrackNo);
@@ -99,9 +109,40 @@ public class V2dFile
       e.printStackTrace ();
     }
 
+    // decode the tracks on the common fork-join pool, then copy them in file order
+    fullTracks.parallelStream ().forEach (V2dTrack::decode);
+
+    // processTrack rejects any address field whose track is not trackNo, so placing
+    // by the record's track number puts every sector where its address field says
+    for (V2dTrack track : fullTracks)
+      if (track.trackNo < 35)
+        track.copyTo (diskBuffer);
+
     this.tracks = tracks;
   }
 
+  private static byte[] readFile (File file)
+  {
+    try
+    {
+      return Files.readAllBytes (file.toPath ());
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+      return new byte[0];
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // getBuffer
+  // ---------------------------------------------------------------------------------//
+
+  public byte[] getBuffer ()
+  {
+    return buffer;
+  }
+
   // ---------------------------------------------------------------------------------//
   // getDiskBuffer
   // ---------------------------------------------------------------------------------//
@@ -110,4 +151,41 @@ public class V2dFile
   {
     return diskBuffer;
   }
+
+  private static class V2dTrack
+  {
+    final int trackNo;
+    final byte[] trackData;
+    final byte[] trackBuffer = new byte[TRACK_SIZE];
+    final boolean[] blocksFound = new boolean[TRACK_SIZE / BLOCK_SIZE];
+
+    // ---------------------------------------------------------------------------------//
+    V2dTrack (int trackNo, byte[] trackData)
+    // ---------------------------------------------------------------------------------//
+    {
+      this.trackNo = trackNo;
+      this.trackData = trackData;
+    }
+
+    // a Nibblizer keeps scratch buffers, so each track needs its own
+    // ---------------------------------------------------------------------------------//
+    void decode ()
+    // ---------------------------------------------------------------------------------//
+    {
+      new Nibblizer ().processTrack (trackNo, 16, trackData, trackBuffer, blocksFound);
+    }
+
+    // only the sectors that decoded are copied, so a later copy of the same track
+    // cannot blank out sectors that an earlier one supplied
+    // ---------------------------------------------------------------------------------//
+    void copyTo (byte[] diskBuffer)
+    // ---------------------------------------------------------------------------------//
+    {
+      int base = trackNo * TRACK_SIZE;
+      for (int block = 0; block < blocksFound.length; block++)
+        if (blocksFound[block])
+          System.arraycopy (trackBuffer, block * BLOCK_SIZE, diskBuffer,
+              base + block * BLOCK_SIZE, BLOCK_SIZE);
+    }
+  }
 }
\ No newline at end of file
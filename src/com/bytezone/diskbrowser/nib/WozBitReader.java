@@ -0,0 +1,108 @@
+package com.bytezone.diskbrowser.nib;
+
+// Reads disk nibbles from one WOZ track. The track is bitCount bits long, starting at
+// the high bit of rawBuffer[start], and it wraps back to its first bit like a spinning
+// disk. Bits are loaded up to 64 at a time into a left-aligned window, so finding the
+// next nibble is a leading zero count and a shift rather than a call per bit.
+// -----------------------------------------------------------------------------------//
+class WozBitReader
+// -----------------------------------------------------------------------------------//
+{
+  private final byte[] rawBuffer;
+  private final int start;
+  private final int bitCount;
+
+  private long window;                // next bits, first bit in the high bit
+  private int windowBits;             // valid bits in the window
+  private int position;               // track bit that follows the window
+
+  // ---------------------------------------------------------------------------------//
+  WozBitReader (byte[] rawBuffer, int start, int bitCount)
+  // ---------------------------------------------------------------------------------//
+  {
+    assert bitCount > 0;
+
+    this.rawBuffer = rawBuffer;
+    this.start = start;
+    this.bitCount = bitCount;
+  }
+
+  // A nibble is the next 1 bit and the 7 bits after it - the same as shifting bits
+  // into a byte until its high bit is set.
+  // ---------------------------------------------------------------------------------//
+  int nextByte ()
+  // ---------------------------------------------------------------------------------//
+  {
+    // skip the sync zeros
+    int skipped = 0;
+    while (true)
+    {
+      if (windowBits == 0)
+        fill ();
+
+      int zeros = Long.numberOfLeadingZeros (window);
+      if (zeros < windowBits)
+      {
+        window <<= zeros;
+        windowBits -= zeros;
+        break;
+      }
+      skipped += windowBits;
+      windowBits = 0;                               // nothing but zeros
+      if (skipped > bitCount)                       // an unformatted track
+        return 0;
+    }
+
+    if (windowBits >= 8)
+    {
+      int value = (int) (window >>> 56);
+      window <<= 8;
+      windowBits -= 8;
+      return (byte) value;
+    }
+
+    // the nibble runs past the window
+    int have = windowBits;
+    int value = (int) (window >>> (64 - have));
+    fill ();
+
+    int need = 8 - have;
+    while (windowBits < need)                       // only on a very short track
+    {
+      value = (value << windowBits) | (int) (window >>> (64 - windowBits));
+      need -= windowBits;
+      fill ();
+    }
+
+    value = (value << need) | (int) (window >>> (64 - need));
+    window <<= need;
+    windowBits -= need;
+
+    return (byte) value;
+  }
+
+  // Loads the window with up to 64 bits, stopping at the end of the track so that the
+  // next fill starts again at its first bit.
+  // ---------------------------------------------------------------------------------//
+  private void fill ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int ptr = start + (position >>> 3);
+    int shift = position & 0x07;
+
+    long bits = 0;
+    int max = Math.min (ptr + 8, rawBuffer.length);
+    int i = ptr;
+    while (i < max)
+      bits = (bits << 8) | (rawBuffer[i++] & 0xFF);
+    bits <<= (ptr + 8 - i) * 8;                     // past the end of the buffer
+
+    int count = Math.min (64 - shift, bitCount - position);
+    window = (bits << shift) & (-1L << (64 - count));
+    windowBits = count;
+
+    position += count;
+    if (position >= bitCount)
+      position = 0;
+  }
+}
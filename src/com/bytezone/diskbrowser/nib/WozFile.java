@@ -5,9 +5,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.bytezone.diskbrowser.utilities.Utility;
 
@@ -34,27 +37,43 @@ public class WozFile
         { 0, 7, 14, 6, 13, 5, 12, 4, 11, 3, 10, 2, 9, 1, 8, 15 } };     // 16 sector
 
   public final File file;
+  private final byte[] buffer;            // the file, as read or decompressed
 
   private Info info;
   private Meta meta;
   private int diskSectors;
 
+  private static final int TMAP_SIZE = 160;
+  private static final int NO_TRACK = 0xFF;
+
   private byte[] addressPrologue;
   private byte[] diskBuffer;
-  private List<Track> tracks;
+  private int[] tmap;                     // TRKS index for each TMAP slot
+  private Track[] trks;                   // one per TRKS entry, null if it has no bits
+  private List<Track> tracks;             // by track (5.25") or track and side (3.5")
+  private BitSet packed;                  // 5.25" tracks already in diskBuffer
+
+  private int tmapSlots;                  // TMAP slots that have a bit stream
+  private int trackRequests;              // tracks that have been asked for
+  private int trackDecodes;               // bit streams that have been decoded
 
   private final boolean debug1 = false;
   private final boolean showTracks = false;
 
-  private final ByteTranslator6and2 byteTranslator6and2 = new ByteTranslator6and2 ();
-
   // ---------------------------------------------------------------------------------//
   public WozFile (File file) throws DiskNibbleException
   // ---------------------------------------------------------------------------------//
+  {
+    this (file, readFile (file));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public WozFile (File file, byte[] buffer) throws DiskNibbleException
+  // ---------------------------------------------------------------------------------//
   {
     this.file = file;
+    this.buffer = buffer;
 
-    byte[] buffer = readFile (file);
     String header = new String (buffer, 0, 4);
     if (!"WOZ1".equals (header) && !"WOZ2".equals (header))
       throw new DiskNibbleException ("Header error");
@@ -89,7 +108,7 @@ public class WozFile
           tmap (buffer, ptr);
           break;
         case "TRKS":                            // starts at 248, data at 256
-          tracks = trks (buffer, ptr);
+          trks = trks (buffer, ptr, size);
           break;
         case "META":
           meta = new Meta (buffer, ptr, size);
@@ -102,17 +121,30 @@ public class WozFile
       ptr += size + 8;
     }
 
+    tracks = mapTracks ();
+
+    if (addressPrologue == null)                                   // WOZ1
+      findPrologue ();
+
+    // a 5.25" track is decoded the first time one of its sectors is read
     if (info.diskType == 1)                   // 5.25"
     {
       diskBuffer = new byte[tracks.size () * diskSectors * SECTOR_SIZE];
-
-      for (Track track : tracks)
-        track.pack (diskBuffer);
+      packed = new BitSet (tracks.size ());
     }
     else if (info.diskType == 2)              // 3.5"
     {
-      List<Sector> sectors = new ArrayList<> ();
+      Set<Track> bitStreams = new LinkedHashSet<> ();
       for (Track track : tracks)
+        if (track != null)
+        {
+          bitStreams.add (track);
+          trackRequests++;
+        }
+      decode (bitStreams);
+
+      List<Sector> sectors = new ArrayList<> ();
+      for (Track track : bitStreams)
         sectors.addAll (track.sectors);
       Collections.sort (sectors);
 
@@ -127,6 +159,32 @@ public class WozFile
     }
   }
 
+  // WOZ1 has no boot sector format, so look for the first track with an address field
+  // ---------------------------------------------------------------------------------//
+  private void findPrologue () throws DiskNibbleException
+  // ---------------------------------------------------------------------------------//
+  {
+    for (Track track : tracks)
+    {
+      if (track == null)
+        continue;
+
+      if (track.findNext (address16prologue, 0) >= 0)
+      {
+        setPrologue (16);
+        return;
+      }
+
+      if (track.findNext (address13prologue, 0) >= 0)
+      {
+        setPrologue (13);
+        return;
+      }
+    }
+
+    throw new DiskNibbleException ("No address prologue found");
+  }
+
   // ---------------------------------------------------------------------------------//
   private boolean validateChunk (byte[] buffer, int ptr) throws DiskNibbleException
   // ---------------------------------------------------------------------------------//
@@ -154,6 +212,13 @@ public class WozFile
     return true;
   }
 
+  // ---------------------------------------------------------------------------------//
+  public byte[] getBuffer ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return buffer;
+  }
+
   // ---------------------------------------------------------------------------------//
   public byte[] getDiskBuffer ()
   // ---------------------------------------------------------------------------------//
@@ -161,6 +226,110 @@ public class WozFile
     return diskBuffer;
   }
 
+  // Decodes a 5.25" track into its slot in the disk buffer. A track that can't be
+  // decoded is left empty.
+  // ---------------------------------------------------------------------------------//
+  public void loadTrack (int trackNo)
+  // ---------------------------------------------------------------------------------//
+  {
+    loadTracks (trackNo, trackNo);
+  }
+
+  // Packs a range of tracks. Each track only gets the sectors that claim it, so what
+  // is in a track doesn't depend on which tracks were loaded first.
+  // ---------------------------------------------------------------------------------//
+  public synchronized void loadTracks (int firstTrack, int lastTrack)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (packed == null)
+      return;
+
+    List<Integer> pending = new ArrayList<> ();
+    Set<Track> bitStreams = new LinkedHashSet<> ();
+
+    for (int trackNo = Math.max (firstTrack, 0); trackNo <= lastTrack
+        && trackNo < tracks.size (); trackNo++)
+      if (!packed.get (trackNo))
+      {
+        pending.add (trackNo);
+        Track track = tracks.get (trackNo);
+        if (track != null)
+        {
+          bitStreams.add (track);
+          trackRequests++;
+        }
+      }
+
+    decode (bitStreams);
+
+    for (int trackNo : pending)
+    {
+      Track track = tracks.get (trackNo);
+      if (track != null)
+        track.pack (diskBuffer, trackNo);
+      packed.set (trackNo);
+
+      if (showTracks)
+        System.out.printf ("%n$%02X  %s%n", trackNo, track);
+    }
+  }
+
+  // Each bit stream is decoded once, however many TMAP slots point at it. Bit streams
+  // share nothing while they are decoded, so several are decoded on the common
+  // fork-join pool.
+  // ---------------------------------------------------------------------------------//
+  private void decode (Set<Track> bitStreams)
+  // ---------------------------------------------------------------------------------//
+  {
+    List<Track> undecoded = new ArrayList<> ();
+    for (Track track : bitStreams)
+      if (!track.decoded)
+        undecoded.add (track);
+
+    trackDecodes += undecoded.size ();
+
+    if (undecoded.size () > 1)
+      undecoded.parallelStream ().forEach (Track::decode);
+    else
+      for (Track track : undecoded)
+        track.decode ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public synchronized boolean isTrackLoaded (int trackNo)
+  // ---------------------------------------------------------------------------------//
+  {
+    return packed == null || packed.get (trackNo);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public synchronized int getTracksLoaded ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return packed == null ? tracks.size () : packed.cardinality ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getTmapSlots ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return tmapSlots;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public synchronized int getTrackRequests ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return trackRequests;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public synchronized int getTrackDecodes ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return trackDecodes;
+  }
+
   // ---------------------------------------------------------------------------------//
   public int getDiskType ()
   // ---------------------------------------------------------------------------------//
@@ -197,43 +366,80 @@ public class WozFile
     addressPrologue = diskSectors == 13 ? address13prologue : address16prologue;
   }
 
+  // 5.25" slots are quarter tracks, 3.5" slots are (track << 1) + side
   // ---------------------------------------------------------------------------------//
   private void tmap (byte[] buffer, int ptr)
   // ---------------------------------------------------------------------------------//
   {
     ptr += 8;
+
+    tmap = new int[TMAP_SIZE];
+    for (int i = 0; i < TMAP_SIZE; i++)
+      tmap[i] = val8 (buffer, ptr + i);
   }
 
   // ---------------------------------------------------------------------------------//
-  private List<Track> trks (byte[] rawBuffer, int ptr)
+  private Track[] trks (byte[] rawBuffer, int ptr, int size)
   // ---------------------------------------------------------------------------------//
   {
-    List<Track> tracks = new ArrayList<> ();
     ptr += 8;
 
     int reclen = info.wozVersion == 1 ? TRK_SIZE : 8;
-    int max = info.wozVersion == 1 ? 35 : 160;
+    int max = info.wozVersion == 1 ? Math.min (size / TRK_SIZE, TMAP_SIZE) : TMAP_SIZE;
+    Track[] trks = new Track[max];
 
     for (int i = 0; i < max; i++)
     {
-      try
+      Track trk = new Track (i, rawBuffer, ptr);
+      if (trk.bitCount > 0)
+        trks[i] = trk;
+      ptr += reclen;
+    }
+    return trks;
+  }
+
+  // Finds the bit stream for each 5.25" track (its whole-track TMAP slot) or each 3.5"
+  // track and side. Slots that point at the same TRKS entry share its Track.
+  // ---------------------------------------------------------------------------------//
+  private List<Track> mapTracks ()
+  // ---------------------------------------------------------------------------------//
+  {
+    List<Track> tracks = new ArrayList<> ();
+
+    if (tmap == null)                         // no TMAP - assume one entry per track
+    {
+      for (Track track : trks)
       {
-        Track trk = new Track (i, rawBuffer, ptr);
-        if (trk.bitCount == 0)
+        if (track == null)
           break;
-        tracks.add (trk);
-        if (showTracks)
-          System.out.printf ("%n$%02X  %s%n", i, trk);
+        tracks.add (track);
       }
-      catch (DiskNibbleException e)
-      {
-        e.printStackTrace ();
-      }
-      ptr += reclen;
+      tmapSlots = tracks.size ();
+      return tracks;
     }
+
+    for (int i = 0; i < TMAP_SIZE; i++)
+      if (getTrack (i) != null)
+        tmapSlots++;
+
+    int step = info.diskType == 1 ? 4 : 1;
+    for (int slot = 0; slot < TMAP_SIZE; slot += step)
+      tracks.add (getTrack (slot));
+
+    while (!tracks.isEmpty () && tracks.get (tracks.size () - 1) == null)
+      tracks.remove (tracks.size () - 1);
+
     return tracks;
   }
 
+  // ---------------------------------------------------------------------------------//
+  private Track getTrack (int tmapSlot)
+  // ---------------------------------------------------------------------------------//
+  {
+    int index = tmap[tmapSlot];
+    return index == NO_TRACK || index >= trks.length ? null : trks[index];
+  }
+
   // ---------------------------------------------------------------------------------//
   private int val8 (byte[] buffer, int ptr)
   // ---------------------------------------------------------------------------------//
@@ -269,7 +475,7 @@ public class WozFile
   }
 
   // ---------------------------------------------------------------------------------//
-  private byte[] readFile (File file)
+  private static byte[] readFile (File file)
   // ---------------------------------------------------------------------------------//
   {
     try (BufferedInputStream in = new BufferedInputStream (new FileInputStream (file)))
@@ -288,9 +494,21 @@ public class WozFile
   public String toString ()
   // ---------------------------------------------------------------------------------//
   {
+    Set<Track> bitStreams = new LinkedHashSet<> ();
+    for (Track track : trks)
+      if (track != null)
+        bitStreams.add (track);
+
+    StringBuilder text = new StringBuilder (info.toString ());
+    text.append (String.format ("%nTMAP slots .......... %d  (%d bit streams)",
+        tmapSlots, bitStreams.size ()));
+    text.append (String.format ("%nTrack decodes ....... %d  (%d requests)",
+        getTrackDecodes (), getTrackRequests ()));
+
     if (meta != null)
-      return info.toString () + "\n\n" + meta.toString ();
-    return info.toString ();
+      text.append ("\n\n" + meta.toString ());
+
+    return text.toString ();
   }
 
   // ---------------------------------------------------------------------------------//
@@ -439,7 +657,7 @@ public class WozFile
   class Track implements Iterable<Sector>
   // -----------------------------------------------------------------------------------//
   {
-    private int trackNo;
+    private int trackNo;           // TRKS index
     private int startingBlock;
     private int blockCount;        // WOZ2 - not needed
     private int bitCount;
@@ -448,15 +666,15 @@ public class WozFile
     private byte[] rawBuffer;
     private byte[] newBuffer;
 
-    private int bitIndex;
-    private int byteIndex;
-    private int trackIndex;
-    private int revolutions;
-
     List<Sector> sectors = new ArrayList<> ();
+    private boolean decoded;
+
+    // only used by the thread that decodes this track
+    private final ByteTranslator6and2 byteTranslator6and2 = new ByteTranslator6and2 ();
+    private DiskReader diskReader;
 
     // ---------------------------------------------------------------------------------//
-    public Track (int trackNo, byte[] rawBuffer, int ptr) throws DiskNibbleException
+    public Track (int trackNo, byte[] rawBuffer, int ptr)
     // ---------------------------------------------------------------------------------//
     {
       this.rawBuffer = rawBuffer;
@@ -482,19 +700,17 @@ public class WozFile
               startingBlock, blockCount, bitCount)));
       }
 
-      if (bitCount == 0)
-        return;
-
-      resetIndex ();
+    }
 
-      if (addressPrologue == null)                                 // WOZ1
-        if (findNext (address16prologue, ptr) > 0)
-          setPrologue (16);
-        else if (findNext (address13prologue, ptr) > 0)
-          setPrologue (13);
-        else
-          throw new DiskNibbleException ("No address prologue found");
+    // ---------------------------------------------------------------------------------//
+    void decode ()
+    // ---------------------------------------------------------------------------------//
+    {
+      if (decoded || bitCount == 0)
+        return;
+      decoded = true;
 
+      diskReader = DiskReader.create (info.diskType == 2 ? 0 : diskSectors);
       int offset = -1;
 
       while (sectors.size () < diskSectors)
@@ -504,8 +720,11 @@ public class WozFile
           break;
 
         Sector sector = new Sector (this, offset);
+        if (!sector.validAddress)
+          continue;
         if (isDuplicate (sector))
           break;
+        sector.decodeData ();
         sectors.add (sector);
       }
     }
@@ -521,54 +740,6 @@ public class WozFile
       return false;
     }
 
-    // ---------------------------------------------------------------------------------//
-    private void resetIndex ()
-    // ---------------------------------------------------------------------------------//
-    {
-      trackIndex = 0;
-      bitIndex = 0;
-
-      if (info.wozVersion == 1)
-        byteIndex = 256 + trackNo * TRK_SIZE;
-      else
-        byteIndex = startingBlock * BLOCK_SIZE;
-    }
-
-    // ---------------------------------------------------------------------------------//
-    boolean nextBit ()
-    // ---------------------------------------------------------------------------------//
-    {
-      boolean bit = (rawBuffer[byteIndex] & (0x80 >>> bitIndex)) != 0;
-
-      if (++trackIndex >= bitCount)
-      {
-        ++revolutions;
-        resetIndex ();
-      }
-      else if (++bitIndex >= 8)
-      {
-        ++byteIndex;
-        bitIndex = 0;
-      }
-
-      return bit;
-    }
-
-    // ---------------------------------------------------------------------------------//
-    int nextByte ()
-    // ---------------------------------------------------------------------------------//
-    {
-      byte b = 0;
-      while ((b & 0x80) == 0)
-      {
-        b <<= 1;
-        if (nextBit ())
-          b |= 0x01;
-      }
-
-      return b;
-    }
-
     // ---------------------------------------------------------------------------------//
     void readTrack ()
     // ---------------------------------------------------------------------------------//
@@ -580,8 +751,12 @@ public class WozFile
       max += 600;
       newBuffer = new byte[max];
 
+      int start = info.wozVersion == 1 ? 256 + trackNo * TRK_SIZE
+          : startingBlock * BLOCK_SIZE;
+      WozBitReader reader = new WozBitReader (rawBuffer, start, bitCount);
+
       for (int i = 0; i < max; i++)
-        newBuffer[i] = (byte) nextByte ();
+        newBuffer[i] = (byte) reader.nextByte ();
     }
 
     // ---------------------------------------------------------------------------------//
@@ -603,20 +778,17 @@ public class WozFile
     }
 
     // ---------------------------------------------------------------------------------//
-    void pack (byte[] diskBuffer) throws DiskNibbleException
+    void pack (byte[] diskBuffer, int trackNo)
     // ---------------------------------------------------------------------------------//
     {
       int ndx = diskSectors == 13 ? 0 : 1;
-      DiskReader diskReader = DiskReader.getInstance (diskSectors);
 
       for (Sector sector : sectors)
-        if (sector.dataOffset > 0)
+        if (sector.data != null && sector.trackNo == trackNo)
         {
-          byte[] decodedBuffer =
-              diskReader.decodeSector (newBuffer, sector.dataOffset + 3);
           int ptr = SECTOR_SIZE
-              * (sector.trackNo * diskSectors + interleave[ndx][sector.sectorNo]);
-          System.arraycopy (decodedBuffer, 0, diskBuffer, ptr, decodedBuffer.length);
+              * (trackNo * diskSectors + interleave[ndx][sector.sectorNo]);
+          System.arraycopy (sector.data, 0, diskBuffer, ptr, sector.data.length);
         }
     }
 
@@ -658,6 +830,8 @@ public class WozFile
     private int trackNo, sectorNo, volume, checksum;
     private final int addressOffset;
     private int dataOffset;
+    private byte[] data;                  // decoded data field, or null
+    private boolean validAddress = true;
 
     // ---------------------------------------------------------------------------------//
     Sector (Track track, int addressOffset)
@@ -677,24 +851,24 @@ public class WozFile
         // http://apple2.guidero.us/doku.php/articles/iicplus_smartport_secrets
         // SWIM Chip User's Ref pp 6
         // uPD72070.pdf
-        try
-        {
-          int b1 = byteTranslator6and2.decode (track.newBuffer[addressOffset + 3]);
-          sectorNo = byteTranslator6and2.decode (track.newBuffer[addressOffset + 4]);
-          int b3 = byteTranslator6and2.decode (track.newBuffer[addressOffset + 5]);
-          int format = byteTranslator6and2.decode (track.newBuffer[addressOffset + 6]);
-          checksum = byteTranslator6and2.decode (track.newBuffer[addressOffset + 7]);
+        ByteTranslator translator = track.byteTranslator6and2;
 
-          trackNo = (b1 & 0x3F) | ((b3 & 0x1F) << 6);
-          volume = (b3 & 0x20) >>> 5;       // side
+        int b1 = translator.decode (track.newBuffer[addressOffset + 3]);
+        sectorNo = translator.decode (track.newBuffer[addressOffset + 4]);
+        int b3 = translator.decode (track.newBuffer[addressOffset + 5]);
+        int format = translator.decode (track.newBuffer[addressOffset + 6]);
+        checksum = translator.decode (track.newBuffer[addressOffset + 7]);
 
-          int chk = b1 ^ sectorNo ^ b3 ^ format;
-          assert chk == checksum;
-        }
-        catch (DiskNibbleException e)
-        {
-          e.printStackTrace ();
-        }
+        trackNo = (b1 & 0x3F) | ((b3 & 0x1F) << 6);
+        volume = (b3 & 0x20) >>> 5;       // side
+
+        validAddress =
+            ((b1 | sectorNo | b3 | format | checksum) & ByteTranslator.INVALID) == 0;
+        if (!validAddress && debug1)
+          System.out.printf ("Invalid address field at %04X%n", addressOffset);
+
+        int chk = b1 ^ sectorNo ^ b3 ^ format;
+        assert !validAddress || chk == checksum;
       }
 
       //      int epiloguePtr = track.findNext (epilogue, addressOffset + 11);
@@ -707,17 +881,31 @@ public class WozFile
     }
 
     // ---------------------------------------------------------------------------------//
-    void pack35 (byte[] diskBuffer, int ptr) throws DiskNibbleException
+    void decodeData ()
     // ---------------------------------------------------------------------------------//
     {
-      DiskReader diskReader = DiskReader.getInstance (0);
+      if (dataOffset <= 0)
+        return;
 
-      // start decoding from 4 bytes past the data prologue (3 bytes for prologue
+      // a 3.5" sector starts 4 bytes past the data prologue (3 bytes for prologue
       // itself, and another byte for the sector number)
-      byte[] decodedBuffer = diskReader.decodeSector (track.newBuffer, dataOffset + 4);
+      int offset = info.diskType == 2 ? dataOffset + 4 : dataOffset + 3;
+
+      byte[] buffer = new byte[track.diskReader.getDecodedSize ()];
+      int status = track.diskReader.decodeSector (track.newBuffer, offset, buffer);
+      if (status == DiskReader.OK)
+        data = buffer;
+      else if (debug1)
+        System.out.printf ("%s  %s%n", this, DiskReader.getStatusText (status));
+    }
 
+    // ---------------------------------------------------------------------------------//
+    void pack35 (byte[] diskBuffer, int ptr)
+    // ---------------------------------------------------------------------------------//
+    {
       // return 512 bytes (ignore the 12 tag bytes)
-      System.arraycopy (decodedBuffer, DiskReaderGCR.TAG_SIZE, diskBuffer, ptr, 512);
+      if (data != null)
+        System.arraycopy (data, DiskReaderGCR.TAG_SIZE, diskBuffer, ptr, 512);
     }
 
     // ---------------------------------------------------------------------------------//
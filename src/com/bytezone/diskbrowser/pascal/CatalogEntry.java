@@ -1,11 +1,11 @@
 package com.bytezone.diskbrowser.pascal;
 
-import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 
 import com.bytezone.diskbrowser.applefile.AbstractFile;
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.disk.BlockList;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
@@ -24,7 +24,7 @@ abstract class CatalogEntry implements AppleFileSource
   protected int fileType;
   protected GregorianCalendar date;
   protected int bytesUsedInLastBlock;
-  protected final List<DiskAddress> blocks = new ArrayList<> ();
+  protected final BlockList blocks = new BlockList ();
 
   // ---------------------------------------------------------------------------------//
   CatalogEntry (PascalDisk parent, byte[] buffer)
@@ -40,8 +40,15 @@ abstract class CatalogEntry implements AppleFileSource
 
     Disk disk = parent.getDisk ();
     int max = Math.min (lastBlock, disk.getTotalBlocks ());
-    for (int i = firstBlock; i < max; i++)
-      blocks.add (disk.getDiskAddress (i));
+    blocks.addRange (firstBlock, max - 1);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public List<DiskAddress> getOwnedSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return blocks.getDiskAddresses (parent.getDisk ());
   }
 
   // ---------------------------------------------------------------------------------//
@@ -49,10 +56,7 @@ abstract class CatalogEntry implements AppleFileSource
   public boolean contains (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    for (DiskAddress sector : blocks)
-      if (sector.matches (da))
-        return true;
-    return false;
+    return blocks.contains (da);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -60,8 +64,7 @@ abstract class CatalogEntry implements AppleFileSource
   public List<DiskAddress> getSectors ()
   // ---------------------------------------------------------------------------------//
   {
-    List<DiskAddress> sectors = new ArrayList<> (blocks);
-    return sectors;
+    return blocks.getDiskAddresses (parent.getDisk ());
   }
 
   // ---------------------------------------------------------------------------------//
@@ -1,5 +1,7 @@
 package com.bytezone.diskbrowser.pascal;
 
+import java.nio.channels.SeekableByteChannel;
+
 import javax.swing.tree.DefaultMutableTreeNode;
 
 import com.bytezone.diskbrowser.applefile.AbstractFile;
@@ -10,6 +12,7 @@ import com.bytezone.diskbrowser.applefile.PascalCode;
 import com.bytezone.diskbrowser.applefile.PascalInfo;
 import com.bytezone.diskbrowser.applefile.PascalSegment;
 import com.bytezone.diskbrowser.applefile.PascalText;
+import com.bytezone.diskbrowser.disk.SectorChannel;
 import com.bytezone.diskbrowser.utilities.FileFormatException;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 import com.bytezone.diskbrowser.utilities.Utility;
@@ -117,22 +120,37 @@ public class FileEntry extends CatalogEntry
     return file;
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public SeekableByteChannel getChannel ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return new SectorChannel (parent.getDisk (),
+        blocks.getDiskAddresses (parent.getDisk ()), getLength ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private int getLength ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int length = blocks.size () * 512;
+    if (length > 0 && bytesUsedInLastBlock < 512)
+      length += bytesUsedInLastBlock - 512;
+    return length;
+  }
+
   // ---------------------------------------------------------------------------------//
   private byte[] getExactBuffer ()
   // ---------------------------------------------------------------------------------//
   {
-    byte[] buffer = parent.getDisk ().readBlocks (blocks);
-    byte[] exactBuffer;
+    byte[] buffer = parent.getDisk ().readBlocks (blocks.getDiskAddresses (parent.getDisk ()));
+    int exactLength = getLength ();
+    if (exactLength == buffer.length)
+      return buffer;
 
-    if (buffer.length > 0 && bytesUsedInLastBlock < 512)
-    {
-      int exactLength = buffer.length - 512 + bytesUsedInLastBlock;
-      exactBuffer = new byte[exactLength];
-      System.arraycopy (buffer, 0, exactBuffer, 0, exactLength);
-    }
-    else
-      exactBuffer = buffer;
+    byte[] exactBuffer = new byte[exactLength];
+    System.arraycopy (buffer, 0, exactBuffer, 0, exactLength);
 
     return exactBuffer;
   }
-}
\ No newline at end of file
+}
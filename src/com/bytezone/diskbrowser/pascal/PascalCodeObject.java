@@ -1,12 +1,11 @@
 package com.bytezone.diskbrowser.pascal;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import com.bytezone.diskbrowser.applefile.AbstractFile;
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
 import com.bytezone.diskbrowser.applefile.PascalSegment;
-import com.bytezone.diskbrowser.disk.Disk;
+import com.bytezone.diskbrowser.disk.BlockList;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
 import com.bytezone.diskbrowser.gui.DataSource;
@@ -17,7 +16,7 @@ class PascalCodeObject implements AppleFileSource
 {
   private final PascalDisk parent;
   private final AbstractFile segment;
-  private final List<DiskAddress> blocks = new ArrayList<> ();
+  private final BlockList blocks = new BlockList ();
 
   // ---------------------------------------------------------------------------------//
   PascalCodeObject (PascalDisk parent, PascalSegment segment, int firstBlock)
@@ -28,10 +27,7 @@ class PascalCodeObject implements AppleFileSource
 
     int lo = firstBlock + segment.blockNo;
     int hi = lo + (segment.size - 1) / 512;
-    Disk disk = parent.getDisk ();
-    int max = Math.min (hi, 279);
-    for (int i = lo; i <= max; i++)
-      blocks.add (disk.getDiskAddress (i));
+    blocks.addRange (lo, Math.min (hi, 279));
   }
 
   // ---------------------------------------------------------------------------------//
@@ -55,7 +51,15 @@ class PascalCodeObject implements AppleFileSource
   public List<DiskAddress> getSectors ()
   // ---------------------------------------------------------------------------------//
   {
-    return blocks;
+    return blocks.getDiskAddresses (parent.getDisk ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public List<DiskAddress> getOwnedSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return getSectors ();
   }
 
   // ---------------------------------------------------------------------------------//
@@ -63,10 +67,7 @@ class PascalCodeObject implements AppleFileSource
   public boolean contains (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    for (DiskAddress sector : blocks)
-      if (sector.matches (da))
-        return true;
-    return false;
+    return blocks.contains (da);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.pascal;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
@@ -78,9 +79,7 @@ public class PascalDisk extends AbstractFormattedDisk
     for (int i = 2; i < disk.getTotalBlocks (); i++)
       freeBlocks.set (i, true);
 
-    byte[] buffer = disk.readBlock (2);
-    byte[] data = new byte[CATALOG_ENTRY_SIZE];
-    System.arraycopy (buffer, 0, data, 0, CATALOG_ENTRY_SIZE);
+    byte[] data = Utility.getBytes (disk.readBlockView (2), 0, CATALOG_ENTRY_SIZE);
     volumeEntry = new VolumeEntry (this, data);
 
     DefaultMutableTreeNode root = getCatalogTreeRoot ();
@@ -98,14 +97,9 @@ public class PascalDisk extends AbstractFormattedDisk
       freeBlocks.set (i, false);
     }
 
-    diskCatalogSector =
-        new PascalCatalogSector (disk, disk.readBlocks (sectors), sectors);
-
-    // read the catalog
-    List<DiskAddress> addresses = new ArrayList<> ();
-    for (int i = 2; i < max; i++)
-      addresses.add (disk.getDiskAddress (i));
-    buffer = disk.readBlocks (addresses);
+    // read the catalog once, it is shared with the catalog sector display
+    byte[] buffer = disk.readBlocks (sectors);
+    diskCatalogSector = new PascalCatalogSector (disk, buffer, sectors);
 
     // loop through each catalog entry (what if there are deleted files?)
     for (int i = 1; i <= volumeEntry.totalFiles; i++)
@@ -115,7 +109,7 @@ public class PascalDisk extends AbstractFormattedDisk
       System.arraycopy (buffer, ptr, data, 0, CATALOG_ENTRY_SIZE);
       FileEntry fileEntry = new FileEntry (this, data);
 
-      fileEntries.add (fileEntry);
+      addFile (fileEntry);
       DefaultMutableTreeNode node = new DefaultMutableTreeNode (fileEntry);
       fileEntry.setNode (node);
 
@@ -140,21 +134,23 @@ public class PascalDisk extends AbstractFormattedDisk
   public static boolean isCorrectFormat (AppleDisk disk, boolean debug)
   // ---------------------------------------------------------------------------------//
   {
-    disk.setInterleave (1);                 // should only ever be Prodos
-    if (checkFormat (disk, debug))
-      return true;
-    disk.setInterleave (0);                 // see SANE Disk 2.po
-    if (checkFormat (disk, debug))
-      return true;
+    // should only ever be Prodos, but see SANE Disk 2.po
+    for (int interleave : new int[] { 1, 0 })
+      if (checkFormat (disk, interleave, debug))
+      {
+        if (disk.getInterleave () != interleave)      // only switch once it's known
+          disk.setInterleave (interleave);
+        return true;
+      }
     return false;
   }
 
   // ---------------------------------------------------------------------------------//
-  public static boolean checkFormat (AppleDisk disk, boolean debug)
+  public static boolean checkFormat (AppleDisk disk, int interleave, boolean debug)
   // ---------------------------------------------------------------------------------//
   {
-    byte[] buffer = disk.readBlock (2);
-    int nameLength = buffer[6] & 0xFF;
+    ByteBuffer header = disk.readBlockView (disk.getDiskAddress (2), interleave);
+    int nameLength = header.get (6) & 0xFF;
     if (nameLength < 1 || nameLength > 7)
     {
       if (debug)
@@ -164,12 +160,12 @@ public class PascalDisk extends AbstractFormattedDisk
 
     if (debug)
     {
-      String name = HexFormatter.getPascalString (buffer, 6);
+      String name = HexFormatter.getPascalString (Utility.getBytes (header, 0, 14), 6);
       System.out.println ("Name ok : " + name);
     }
 
-    int from = Utility.intValue (buffer[0], buffer[1]);
-    int to = Utility.intValue (buffer[2], buffer[3]);
+    int from = Utility.unsignedShort (header, 0);
+    int to = Utility.unsignedShort (header, 2);
     if (from != 0 || to != 6)
     {
       if (debug)
@@ -177,7 +173,7 @@ public class PascalDisk extends AbstractFormattedDisk
       return false;                         // will only work for floppies!
     }
 
-    int blocks = Utility.intValue (buffer[14], buffer[15]);
+    int blocks = Utility.unsignedShort (header, 14);
     if (blocks > 280)
     {
       if (debug)
@@ -185,10 +181,11 @@ public class PascalDisk extends AbstractFormattedDisk
       //      return false;
     }
 
-    List<DiskAddress> addresses = new ArrayList<> ();
+    int blockSize = disk.getBlockSize ();
+    byte[] buffer = new byte[(to - 2) * blockSize];
     for (int i = 2; i < to; i++)
-      addresses.add (disk.getDiskAddress (i));
-    buffer = disk.readBlocks (addresses);
+      disk.readBlockView (disk.getDiskAddress (i), interleave).get (buffer,
+          (i - 2) * blockSize, blockSize);
 
     int files = Utility.intValue (buffer[16], buffer[17]);
     if (files < 0 || files > 77)
@@ -245,10 +242,8 @@ public class PascalDisk extends AbstractFormattedDisk
   public String getSectorFilename (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    for (AppleFileSource ce : fileEntries)
-      if (((CatalogEntry) ce).contains (da))
-        return ((CatalogEntry) ce).name;
-    return null;
+    AppleFileSource owner = getSectorOwner (da);
+    return owner == null ? null : ((CatalogEntry) owner).name;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -31,7 +31,7 @@ class VolumeEntry extends CatalogEntry
     if (file != null)
       return file;
 
-    byte[] buffer = parent.getDisk ().readBlocks (blocks);
+    byte[] buffer = parent.getDisk ().readBlocks (blocks.getDiskAddresses (parent.getDisk ()));
     file = new DefaultAppleFile (name, buffer);
 
     return file;
@@ -5,6 +5,7 @@ import java.util.GregorianCalendar;
 import java.util.List;
 
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.disk.BlockList;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
@@ -22,7 +23,7 @@ abstract class CatalogEntry implements AppleFileSource
   int version;
   int minVersion;
   int access;
-  List<DiskAddress> dataBlocks = new ArrayList<> ();
+  BlockList dataBlocks = new BlockList ();
   Disk disk;
 
   // ---------------------------------------------------------------------------------//
@@ -57,15 +58,20 @@ abstract class CatalogEntry implements AppleFileSource
     return parentDisk;
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public List<DiskAddress> getOwnedSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return dataBlocks.getDiskAddresses (disk);
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public boolean contains (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    for (DiskAddress sector : dataBlocks)
-      if (sector.matches (da))
-        return true;
-    return false;
+    return dataBlocks.contains (da);
   }
 
   // ---------------------------------------------------------------------------------//
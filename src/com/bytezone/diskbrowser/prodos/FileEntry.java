@@ -1,8 +1,13 @@
 package com.bytezone.diskbrowser.prodos;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.bytezone.diskbrowser.applefile.ApplesoftBasicProgram;
 import com.bytezone.diskbrowser.applefile.AssemblerProgram;
@@ -33,13 +38,19 @@ import com.bytezone.diskbrowser.applefile.SHRPictureFile2;
 import com.bytezone.diskbrowser.applefile.Selector;
 import com.bytezone.diskbrowser.applefile.ShapeTable;
 import com.bytezone.diskbrowser.applefile.SimpleText;
+import com.bytezone.diskbrowser.applefile.SparseFile;
 import com.bytezone.diskbrowser.applefile.StoredVariables;
 import com.bytezone.diskbrowser.applefile.TextBuffer;
 import com.bytezone.diskbrowser.applefile.BasicTextFile;
 import com.bytezone.diskbrowser.appleworks.AppleworksADBFile;
 import com.bytezone.diskbrowser.appleworks.AppleworksSSFile;
 import com.bytezone.diskbrowser.appleworks.AppleworksWPFile;
+import com.bytezone.diskbrowser.disk.BlockList;
+import com.bytezone.diskbrowser.disk.ChainWalker;
 import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.SectorChannel;
+import com.bytezone.diskbrowser.disk.SparseContent;
+import com.bytezone.diskbrowser.disk.SparseContent.Extent;
 import com.bytezone.diskbrowser.gui.DataSource;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 import com.bytezone.diskbrowser.utilities.Utility;
@@ -47,6 +58,8 @@ import com.bytezone.diskbrowser.utilities.Utility;
 // - Set sector types for each used sector
 // - Populate dataBlocks, indexBlocks, catalogBlock and masterIndexBlock
 // - Provide getDataSource ()
+// The catalog only needs the 39 byte entry, so the index blocks are not read until
+// something asks for the file's blocks, or the disk's background pass gets to it.
 
 // -----------------------------------------------------------------------------------//
 class FileEntry extends CatalogEntry implements ProdosConstants
@@ -62,9 +75,13 @@ class FileEntry extends CatalogEntry implements ProdosConstants
   private DataSource file;
   private final DiskAddress catalogBlock;
 
-  private DiskAddress masterIndexBlock;
-  private final List<DiskAddress> indexBlocks = new ArrayList<> ();
+  private int masterIndexBlock = BlockList.NO_BLOCK;
+  private final BlockList indexBlocks = new BlockList ();
 
+  // larger sparse files are shown as a SparseFile rather than a buffer sized to the EOF
+  private static final int MAX_SPARSE_BUFFER = 0x20000;
+
+  private boolean blocksResolved;
   private boolean invalid;
   private FileEntry link;
 
@@ -87,7 +104,29 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     auxType = Utility.unsignedShort (entryBuffer, 0x1F);
     modified = HexFormatter.getAppleDate (entryBuffer, 0x21);
     headerPointer = Utility.unsignedShort (entryBuffer, 0x25);
+  }
+
+  // Reads the index blocks (or the directory's block chain) and sets the sector types.
+  // Every method that uses the blocks calls this first. It locks the disk rather than
+  // the entry, because the disk's background pass calls it while holding that lock.
+  // ---------------------------------------------------------------------------------//
+  void resolveBlocks ()
+  // ---------------------------------------------------------------------------------//
+  {
+    synchronized (parentDisk)
+    {
+      if (!blocksResolved)
+      {
+        blocksResolved = true;
+        readBlocks ();
+      }
+    }
+  }
 
+  // ---------------------------------------------------------------------------------//
+  private void readBlocks ()
+  // ---------------------------------------------------------------------------------//
+  {
     switch (storageType)
     {
       case SEEDLING:
@@ -102,21 +141,21 @@ class FileEntry extends CatalogEntry implements ProdosConstants
 
       case SUBDIRECTORY:
         int block = keyPtr;
+        ChainWalker walker = new ChainWalker (disk, null);     // ProdosDisk reports it
         do
         {
           DiskAddress diskAddress = disk.getDiskAddress (block);
-          if (diskAddress == null)
+          if (diskAddress == null || !walker.visit (block))
             break;
-          dataBlocks.add (diskAddress);
-          byte[] buffer = disk.readBlock (block);
-          block = Utility.unsignedShort (buffer, 2);
+          dataBlocks.add (block);
+          block = Utility.unsignedShort (disk.readBlockView (diskAddress), 2);
         } while (block > 0);
         break;
 
       case PASCAL_ON_PROFILE:
         for (int i = keyPtr; i < disk.getTotalBlocks (); i++)
         {
-          dataBlocks.add (disk.getDiskAddress (i));
+          dataBlocks.add (i);
           parentDisk.setSectorType (i, parentDisk.dataSector);
         }
         //        System.out.println ("PASCAL on PROFILE: " + name);    // PDUCSD12.PO
@@ -132,16 +171,15 @@ class FileEntry extends CatalogEntry implements ProdosConstants
   // ---------------------------------------------------------------------------------//
   {
     parentDisk.setSectorType (keyPtr, parentDisk.extendedKeySector);
-    indexBlocks.add (disk.getDiskAddress (keyPtr));
+    indexBlocks.add (keyPtr);
 
-    byte[] buffer2 = disk.readBlock (keyPtr);        // data fork and resource fork
+    ByteBuffer buffer2 = disk.readBlockView (keyPtr);   // data fork and resource fork
 
     // read 2 mini entries (data fork & resource fork)
     for (int i = 0; i < 512; i += 256)
     {
-      int storageType = buffer2[i] & 0x0F;
+      int storageType = buffer2.get (i) & 0x0F;
       int keyBlock = Utility.unsignedShort (buffer2, i + 1);
-      int eof = Utility.intValue (buffer2[i + 3], buffer2[i + 4], buffer2[i + 5]);
       addDataBlocks (storageType, keyBlock);
     }
   }
@@ -150,8 +188,7 @@ class FileEntry extends CatalogEntry implements ProdosConstants
   private void addDataBlocks (int storageType, int keyPtr)
   // ---------------------------------------------------------------------------------//
   {
-    DiskAddress emptyDiskAddress = disk.getDiskAddress (0);
-    List<Integer> blocks = new ArrayList<> ();
+    BlockList blocks = new BlockList ();
 
     switch (storageType)
     {
@@ -167,33 +204,33 @@ class FileEntry extends CatalogEntry implements ProdosConstants
 
       case TREE:
         if (isValid (keyPtr))
-          for (Integer indexBlock : readMasterIndex (keyPtr))
-            if (isValid (indexBlock))
-              blocks.addAll (readIndex (indexBlock));
+        {
+          BlockList masterBlocks = readMasterIndex (keyPtr);
+          for (int i = 0; i < masterBlocks.size (); i++)
+            if (isValid (masterBlocks.get (i)))
+              blocks.addAll (readIndex (masterBlocks.get (i)));
+        }
         break;
     }
 
     // remove trailing empty blocks
-    while (blocks.size () > 0 && blocks.get (blocks.size () - 1) == 0)
-      blocks.remove (blocks.size () - 1);
+    while (!blocks.isEmpty () && blocks.getLast () == 0)
+      blocks.removeLast ();
 
-    for (Integer block : blocks)
+    for (int i = 0; i < blocks.size (); i++)
     {
-      if (block == 0)
-        dataBlocks.add (emptyDiskAddress);
-      else
-      {
+      int block = blocks.get (i);
+      if (block != 0)                               // 0 is a sparse block
         parentDisk.setSectorType (block, parentDisk.dataSector);
-        dataBlocks.add (disk.getDiskAddress (block));
-      }
     }
+    dataBlocks.addAll (blocks);
   }
 
   // ---------------------------------------------------------------------------------//
-  private List<Integer> readIndex (int blockPtr)
+  private BlockList readIndex (int blockPtr)
   // ---------------------------------------------------------------------------------//
   {
-    List<Integer> blocks = new ArrayList<> (256);
+    BlockList blocks = new BlockList (256);
 
     if (blockPtr == 0)                    // master index contains a zero
       for (int i = 0; i < 256; i++)
@@ -201,12 +238,12 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     else
     {
       parentDisk.setSectorType (blockPtr, parentDisk.indexSector);
-      indexBlocks.add (disk.getDiskAddress (blockPtr));
+      indexBlocks.add (blockPtr);
 
-      byte[] buffer = disk.readBlock (blockPtr);
+      ByteBuffer buffer = disk.readBlockView (blockPtr);
       for (int i = 0; i < 256; i++)
       {
-        int blockNo = (buffer[i] & 0xFF) | ((buffer[i + 0x100] & 0xFF) << 8);
+        int blockNo = (buffer.get (i) & 0xFF) | ((buffer.get (i + 0x100) & 0xFF) << 8);
         blocks.add (isValid (blockNo) ? blockNo : 0);
       }
     }
@@ -215,24 +252,24 @@ class FileEntry extends CatalogEntry implements ProdosConstants
   }
 
   // ---------------------------------------------------------------------------------//
-  private List<Integer> readMasterIndex (int keyPtr)
+  private BlockList readMasterIndex (int keyPtr)
   // ---------------------------------------------------------------------------------//
   {
-    masterIndexBlock = disk.getDiskAddress (keyPtr);
+    masterIndexBlock = keyPtr;
     parentDisk.setSectorType (keyPtr, parentDisk.masterIndexSector);
-    indexBlocks.add (disk.getDiskAddress (keyPtr));
+    indexBlocks.add (keyPtr);
 
-    byte[] buffer = disk.readBlock (keyPtr);                   // master index
+    ByteBuffer buffer = disk.readBlockView (keyPtr);           // master index
 
     int highest = 0x80;
     while (highest-- > 0)                                       // decrement after test
-      if (buffer[highest] != 0 || buffer[highest + 0x100] != 0)
+      if (buffer.get (highest) != 0 || buffer.get (highest + 0x100) != 0)
         break;
 
-    List<Integer> blocks = new ArrayList<> (highest + 1);
+    BlockList blocks = new BlockList (highest + 1);
     for (int i = 0; i <= highest; i++)
     {
-      int blockNo = (buffer[i] & 0xFF) | ((buffer[i + 256] & 0xFF) << 8);
+      int blockNo = (buffer.get (i) & 0xFF) | ((buffer.get (i + 256) & 0xFF) << 8);
       blocks.add (isValid (blockNo) ? blockNo : 0);
     }
 
@@ -261,6 +298,8 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     if (file != null)
       return file;
 
+    resolveBlocks ();
+
     if (invalid)
     {
       file = new DefaultAppleFile (name, null);
@@ -268,7 +307,21 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     }
 
     if (fileType == FILE_TYPE_TEXT && auxType > 0)      // random access file
-      return getRandomAccessTextFile ();
+    {
+      file = getRandomAccessTextFile ();
+      return file;
+    }
+
+    // a large file that is mostly holes is shown without reading it into one buffer
+    if (endOfFile > MAX_SPARSE_BUFFER && isDataFile ())
+    {
+      SparseContent content = getContent ();
+      if (content.isSparse ())
+      {
+        file = new SparseFile (name, content);
+        return file;
+      }
+    }
 
     byte[] buffer = getBuffer ();
     byte[] exactBuffer = getExactBuffer (buffer);
@@ -548,6 +601,13 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     return file;
   }
 
+  // ---------------------------------------------------------------------------------//
+  private boolean isDataFile ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return storageType == SEEDLING || storageType == SAPLING || storageType == TREE;
+  }
+
   // ---------------------------------------------------------------------------------//
   private boolean oneOf (int val, int... values)
   // ---------------------------------------------------------------------------------//
@@ -568,9 +628,8 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     switch (storageType)
     {
       case TREE:
-        return getTreeTextFile ();
       case SAPLING:
-        return getSaplingTextFile ();
+        return getSparseTextFile ();
       case SEEDLING:
         return getSeedlingTextFile ();
       default:
@@ -579,45 +638,17 @@ class FileEntry extends CatalogEntry implements ProdosConstants
     }
   }
 
+  // Sapling and tree text files keep one TextBuffer per run of allocated blocks, so
+  // the holes between records are never read or allocated.
   // ---------------------------------------------------------------------------------//
-  private DataSource getTreeTextFile ()
+  private DataSource getSparseTextFile ()
   // ---------------------------------------------------------------------------------//
   {
     List<TextBuffer> buffers = new ArrayList<> ();
-    List<DiskAddress> addresses = new ArrayList<> ();
-    int logicalBlock = 0;
+    SparseContent content = getContent ();
 
-    byte[] mainIndexBuffer = disk.readBlock (keyPtr);
-    for (int i = 0; i < 256; i++)
-    {
-      int indexBlock = Utility.intValue (mainIndexBuffer[i], mainIndexBuffer[i + 256]);
-      if (indexBlock > 0)
-        logicalBlock = readIndexBlock (indexBlock, addresses, buffers, logicalBlock);
-      else
-      {
-        if (addresses.size () > 0)
-        {
-          byte[] tempBuffer = disk.readBlocks (addresses);
-          buffers.add (
-              new TextBuffer (tempBuffer, auxType, logicalBlock - addresses.size ()));
-          addresses.clear ();
-        }
-        logicalBlock += 256;
-      }
-    }
-    if (buffers.size () == 1 && name.endsWith (".S"))
-      return new MerlinSource (name, buffers.get (0).buffer, auxType, endOfFile);
-
-    return new BasicTextFile (name, buffers, auxType, endOfFile);
-  }
-
-  // ---------------------------------------------------------------------------------//
-  private DataSource getSaplingTextFile ()
-  // ---------------------------------------------------------------------------------//
-  {
-    List<TextBuffer> buffers = new ArrayList<> ();
-    List<DiskAddress> addresses = new ArrayList<> ();
-    readIndexBlock (keyPtr, addresses, buffers, 0);
+    for (Extent extent : content.getExtents ())
+      buffers.add (new TextBuffer (content.read (extent), auxType, extent.firstBlock));
 
     if (buffers.size () == 1 && name.endsWith (".S"))
       return new MerlinSource (name, buffers.get (0).buffer, auxType, endOfFile);
@@ -647,29 +678,33 @@ class FileEntry extends CatalogEntry implements ProdosConstants
   private byte[] getBuffer ()
   // ---------------------------------------------------------------------------------//
   {
+    resolveBlocks ();                   // may be the linked file
+
     switch (storageType)
     {
       case SEEDLING:
       case SAPLING:
       case TREE:
-        return disk.readBlocks (dataBlocks);
+        return disk.readBlocks (dataBlocks.getDiskAddresses (disk));
 
       case SUBDIRECTORY:
         byte[] fullBuffer = new byte[dataBlocks.size () * BLOCK_ENTRY_SIZE];
         int offset = 0;
-        for (DiskAddress da : dataBlocks)
+        for (int i = 0; i < dataBlocks.size (); i++)
         {
-          byte[] buffer = disk.readBlock (da);
-          System.arraycopy (buffer, 4, fullBuffer, offset, BLOCK_ENTRY_SIZE);
+          ByteBuffer buffer = disk.readBlockView (dataBlocks.get (i));
+          buffer.position (4);
+          buffer.get (fullBuffer, offset, BLOCK_ENTRY_SIZE);
           offset += BLOCK_ENTRY_SIZE;
         }
         return fullBuffer;
 
       case GSOS_EXTENDED_FILE:
-        return disk.readBlocks (dataBlocks);   // data and resource forks concatenated
+        // data and resource forks concatenated
+        return disk.readBlocks (dataBlocks.getDiskAddresses (disk));
 
       case PASCAL_ON_PROFILE:
-        return disk.readBlocks (dataBlocks);
+        return disk.readBlocks (dataBlocks.getDiskAddresses (disk));
 
       default:
         System.out.println ("Unknown storage type in getBuffer : " + storageType);
@@ -699,27 +734,58 @@ class FileEntry extends CatalogEntry implements ProdosConstants
   }
 
   // ---------------------------------------------------------------------------------//
-  private int readIndexBlock (int indexBlock, List<DiskAddress> addresses,
-      List<TextBuffer> buffers, int logicalBlock)
+  private SparseContent getContent ()
   // ---------------------------------------------------------------------------------//
   {
-    byte[] indexBuffer = disk.readBlock (indexBlock);
-    for (int j = 0; j < 256; j++)
-    {
-      int block = Utility.intValue (indexBuffer[j], indexBuffer[j + 256]);
-      if (block > 0)
-        addresses.add (disk.getDiskAddress (block));
-      else if (addresses.size () > 0)
-      {
-        byte[] tempBuffer = disk.readBlocks (addresses);
-        buffers
-            .add (new TextBuffer (tempBuffer, auxType, logicalBlock - addresses.size ()));
-        addresses.clear ();
-      }
-      logicalBlock++;
-    }
+    resolveBlocks ();
+    return new SparseContent (disk, dataBlocks, endOfFile);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isDirectory ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return storageType == SUBDIRECTORY;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Map<String, Object> getAttributes ()
+  // ---------------------------------------------------------------------------------//
+  {
+    Map<String, Object> attributes = new LinkedHashMap<> ();
+
+    attributes.put ("fileType", ProdosConstants.fileTypes[fileType]);
+    attributes.put ("auxType", auxType);
+    attributes.put ("storageType", storageType);
+    attributes.put ("access", access);
+    attributes.put ("blocksUsed", blocksUsed);
+    attributes.put ("eof", endOfFile);
+    attributes.put ("version", version);
+    attributes.put ("minVersion", minVersion);
+    if (created != null)
+      attributes.put ("created", FileTime.fromMillis (created.getTimeInMillis ()));
+    if (modified != null)
+      attributes.put ("modified", FileTime.fromMillis (modified.getTimeInMillis ()));
+
+    return attributes;
+  }
 
-    return logicalBlock;
+  // Holes in a sparse file are block 0, which the channel reads as zeros. Extended
+  // files have their data and resource forks concatenated, as in getBuffer ().
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public SeekableByteChannel getChannel ()
+  // ---------------------------------------------------------------------------------//
+  {
+    resolveBlocks ();
+
+    List<DiskAddress> addresses = dataBlocks.getDiskAddresses (disk);
+    if (isDataFile ())
+      return new SectorChannel (disk, addresses, endOfFile);
+
+    return new SectorChannel (disk, addresses);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -729,10 +795,24 @@ class FileEntry extends CatalogEntry implements ProdosConstants
   {
     List<DiskAddress> sectors = new ArrayList<> ();
     sectors.add (catalogBlock);
-    if (masterIndexBlock != null)
-      sectors.add (masterIndexBlock);
-    sectors.addAll (indexBlocks);
-    sectors.addAll (dataBlocks);
+    sectors.addAll (getOwnedSectors ());
+
+    return sectors;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public List<DiskAddress> getOwnedSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    resolveBlocks ();
+
+    List<DiskAddress> sectors =
+        new ArrayList<> (1 + indexBlocks.size () + dataBlocks.size ());
+    if (masterIndexBlock != BlockList.NO_BLOCK)
+      sectors.add (disk.getDiskAddress (masterIndexBlock));
+    indexBlocks.addDiskAddresses (disk, sectors);
+    dataBlocks.addDiskAddresses (disk, sectors);
 
     return sectors;
   }
@@ -744,16 +824,11 @@ class FileEntry extends CatalogEntry implements ProdosConstants
   {
     if (da == null)
       return false;
-    if (da.equals (masterIndexBlock))
-      return true;
-    for (DiskAddress block : indexBlocks)
-      if (da.matches (block))
-        return true;
-    for (DiskAddress block : dataBlocks)
-      if (da.matches (block))
-        return true;
 
-    return false;
+    resolveBlocks ();
+
+    return da.getBlockNo () == masterIndexBlock || indexBlocks.contains (da)
+        || dataBlocks.contains (da);
   }
 
   // called from ProdosDisk.processDirectoryBlock, used to link DoubleHires image files
@@ -1,19 +1,33 @@
 package com.bytezone.diskbrowser.prodos;
 
 import java.awt.Color;
+import java.awt.event.ActionListener;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import javax.swing.SwingUtilities;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.ExpandVetoException;
 
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
 import com.bytezone.diskbrowser.applefile.BootSector;
 import com.bytezone.diskbrowser.disk.AbstractFormattedDisk;
 import com.bytezone.diskbrowser.disk.AppleDisk;
+import com.bytezone.diskbrowser.disk.ChainWalker;
 import com.bytezone.diskbrowser.disk.DefaultAppleFileSource;
 import com.bytezone.diskbrowser.disk.DefaultSector;
 import com.bytezone.diskbrowser.disk.Disk;
@@ -46,7 +60,24 @@ public class ProdosDisk extends AbstractFormattedDisk
   private final NodeComparator nodeComparator = new NodeComparator ();
   private VolumeDirectoryHeader vdh;
 
+  // subdirectories are only read when their node is expanded, by getFile (), or by the
+  // background pass, which never touches the tree nodes
+  private final Map<FileEntry, PendingDirectory> directories = new HashMap<> ();
+  private final Map<DefaultMutableTreeNode, PendingDirectory> unloadedDirectories =
+      new HashMap<> ();
+  private final Deque<PendingDirectory> unreadDirectories = new ArrayDeque<> ();
+  private int totalResolved;              // file entries whose index blocks have been read
+  private int[] freeBlockErrors;          // false positives, false negatives
+  private boolean catalogReaderStarted;
+
   private static final boolean debug = false;
+  private static final ExecutorService catalogReader =
+      Executors.newSingleThreadExecutor (runnable ->
+      {
+        Thread thread = new Thread (runnable, "ProdosCatalog");
+        thread.setDaemon (true);
+        return thread;
+      });
 
   // ---------------------------------------------------------------------------------//
   public static void setProdosPreferences (ProdosPreferences prodosPreferences)
@@ -78,55 +109,253 @@ public class ProdosDisk extends AbstractFormattedDisk
     byte[] buffer = disk.readBlock (da);
     bootSector = new BootSector (disk, buffer, "Prodos", da);
 
+    List<FileEntry> entries = processDirectoryBlock (2, null);
+
     DefaultMutableTreeNode root = getCatalogTreeRoot ();
-    volumeNode = new DefaultMutableTreeNode ("empty volume node");
+    volumeNode = new DefaultMutableTreeNode (vdh);
     root.add (volumeNode);
-
-    processDirectoryBlock (2, null, volumeNode);
+    addNodes (volumeNode, entries);
     makeNodeVisible (volumeNode.getFirstLeaf ());
 
-    for (DiskAddress da2 : disk)
+    if (ProdosDisk.prodosPreferences.sortDirectories)
     {
-      int blockNo = da2.getBlockNo ();
-      if (freeBlocks.get (blockNo))
+      sortNodes (volumeNode);
+      ((DefaultTreeModel) catalogTree.getModel ()).reload ();
+    }
+
+    catalogTree.addTreeWillExpandListener (new TreeWillExpandListener ()
+    {
+      @Override
+      public void treeWillCollapse (TreeExpansionEvent e) throws ExpandVetoException
       {
-        if (!stillAvailable (da2))
-          falsePositives++;
       }
-      else if (stillAvailable (da2))
-        falseNegatives++;
+
+      @Override
+      public void treeWillExpand (TreeExpansionEvent e) throws ExpandVetoException
+      {
+        loadDirectory ((DefaultMutableTreeNode) e.getPath ().getLastPathComponent ());
+      }
+    });
+
+  }
+
+  // Only a window showing the disk listens to it, so that is when the rest of the
+  // catalog is read in the background. Other users read it when they need it.
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void addActionListener (ActionListener actionListener)
+  // ---------------------------------------------------------------------------------//
+  {
+    super.addActionListener (actionListener);
+
+    if (!catalogReaderStarted)
+    {
+      catalogReaderStarted = true;
+      catalogReader.execute (new CatalogReader (this));
     }
+  }
+
+  // Called by the background pass once every directory and index block has been read.
+  // ---------------------------------------------------------------------------------//
+  private void catalogRead ()
+  // ---------------------------------------------------------------------------------//
+  {
+    getFreeBlockErrors ();
+    buildOwnerIndex ();                             // replaces the partial index
+
+    SwingUtilities.invokeLater (new Runnable ()
+    {
+      @Override
+      public void run ()
+      {
+        notifyListeners ("Catalog complete");
+      }
+    });
+  }
+
+  // Reads the directories that haven't been read yet, and then the index blocks of
+  // every file. It does one at a time so that expanding a node never waits for long.
+  // The entries and sector types are complete when this returns, but the tree nodes
+  // are only added on expansion, on the event thread.
+  // ---------------------------------------------------------------------------------//
+  @Override
+  protected void completeCatalog ()
+  // ---------------------------------------------------------------------------------//
+  {
+    while (readNext ())
+      ;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public synchronized boolean isCatalogComplete ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return unreadDirectories.isEmpty () && totalResolved == fileEntries.size ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  protected synchronized int getResolvedEntries ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return totalResolved;                   // only set once every directory is read
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private synchronized boolean readNext ()
+  // ---------------------------------------------------------------------------------//
+  {
+    PendingDirectory pending = unreadDirectories.poll ();
+    if (pending != null)
+    {
+      readDirectory (pending);
+      return true;
+    }
+
+    // every directory has been read, so fileEntries will not change now
+    if (totalResolved < fileEntries.size ())
+    {
+      ((FileEntry) fileEntries.get (totalResolved++)).resolveBlocks ();
+      return true;
+    }
+
+    return false;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private synchronized List<FileEntry> readDirectory (PendingDirectory pending)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (pending.contents == null)
+      pending.contents = processDirectoryBlock (pending.fileEntry.keyPtr, pending.fileEntry);
+    return pending.contents;
+  }
+
+  // Called on the event thread when the node is about to be expanded, or when a file
+  // inside the directory is about to be selected.
+  // ---------------------------------------------------------------------------------//
+  private void loadDirectory (DefaultMutableTreeNode node)
+  // ---------------------------------------------------------------------------------//
+  {
+    PendingDirectory pending = unloadedDirectories.remove (node);
+    if (pending == null)
+      return;
+
+    addNodes (node, readDirectory (pending));
 
     if (ProdosDisk.prodosPreferences.sortDirectories)
+      sortNodes (node);
+
+    DefaultTreeModel treeModel = (DefaultTreeModel) catalogTree.getModel ();
+    if (node.getRoot () == treeModel.getRoot ())    // it may be inside an unloaded node
+      treeModel.nodeStructureChanged (node);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void addNodes (DefaultMutableTreeNode parentNode, List<FileEntry> entries)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (FileEntry fileEntry : entries)
     {
-      sortNodes (volumeNode);
-      ((DefaultTreeModel) catalogTree.getModel ()).reload ();
+      DefaultMutableTreeNode node = new DefaultMutableTreeNode (fileEntry);
+      PendingDirectory pending = getPendingDirectory (fileEntry);
+      node.setAllowsChildren (pending != null);
+      parentNode.add (node);
+      if (pending != null)
+        unloadedDirectories.put (node, pending);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private synchronized PendingDirectory getPendingDirectory (FileEntry fileEntry)
+  // ---------------------------------------------------------------------------------//
+  {
+    return directories.get (fileEntry);
+  }
+
+  // The counts need every sector type, so anything other than the background pass
+  // reads the rest of the catalog first.
+  // ---------------------------------------------------------------------------------//
+  private synchronized int[] getFreeBlockErrors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (freeBlockErrors == null)
+    {
+      completeCatalog ();
+      freeBlockErrors = countFreeBlockErrors ();
     }
+    return freeBlockErrors;
   }
 
+  // VTOC flags sector as free, but it is in use by a file
   // ---------------------------------------------------------------------------------//
-  private void processDirectoryBlock (int block, FileEntry parent,
-      DefaultMutableTreeNode parentNode)
+  @Override
+  public int falsePositiveBlocks ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return getFreeBlockErrors ()[0];
+  }
+
+  // VTOC flags sector as in use, but no file is using it
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int falseNegativeBlocks ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return getFreeBlockErrors ()[1];
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private synchronized int[] countFreeBlockErrors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int[] counts = new int[2];                // false positives, false negatives
+
+    for (DiskAddress da : disk)
+    {
+      int blockNo = da.getBlockNo ();
+      if (freeBlocks.get (blockNo))
+      {
+        if (!stillAvailable (da))
+          counts[0]++;
+      }
+      else if (stillAvailable (da))
+        counts[1]++;
+    }
+
+    return counts;
+  }
+
+  // Reads the entries of one directory and sets the sector types of its blocks. The
+  // caller adds the tree nodes.
+  // ---------------------------------------------------------------------------------//
+  private List<FileEntry> processDirectoryBlock (int block, FileEntry parent)
   // ---------------------------------------------------------------------------------//
   {
     DirectoryHeader localHeader = null;
     SectorType currentSectorType = null;
+    List<FileEntry> entries = new ArrayList<> ();
+    ChainWalker walker = new ChainWalker (disk,
+        parent == null ? "Volume directory" : parent.getUniqueName ());
 
     do
     {
-      byte[] sectorBuffer = disk.readBlock (block);
-      if (!disk.isBlockEmpty (block))
+      if (!walker.visit (block))
+        break;
+
+      ByteBuffer sectorBuffer = disk.readBlockView (block);
+      if (currentSectorType != null && !disk.isBlockEmpty (block))
         sectorTypes[block] = currentSectorType;
 
       int max = disk.getBlockSize () - ProdosConstants.ENTRY_SIZE;
       for (int ptr = 4; ptr < max; ptr += ProdosConstants.ENTRY_SIZE)
       {
-        int storageType = (sectorBuffer[ptr] & 0xF0) >> 4;
+        int storageType = (sectorBuffer.get (ptr) & 0xF0) >> 4;
         if (storageType == 0)                                   // deleted or unused
           continue;
 
-        byte[] entry = new byte[ProdosConstants.ENTRY_SIZE];
-        System.arraycopy (sectorBuffer, ptr, entry, 0, ProdosConstants.ENTRY_SIZE);
+        byte[] entry = Utility.getBytes (sectorBuffer, ptr, ProdosConstants.ENTRY_SIZE);
 
         switch (storageType)
         {
@@ -140,7 +369,6 @@ public class ProdosDisk extends AbstractFormattedDisk
               sectorTypes[block] = currentSectorType;
             for (int i = 0; i < vdh.totalBitMapBlocks; i++)
               sectorTypes[vdh.bitMapBlock + i] = volumeMapSector;
-            parentNode.setUserObject (vdh);         // populate the empty volume node
             localHeader = vdh;
             break;
 
@@ -154,11 +382,10 @@ public class ProdosDisk extends AbstractFormattedDisk
 
           case ProdosConstants.SUBDIRECTORY:
             FileEntry fileEntry = new FileEntry (this, entry, localHeader, block);
-            fileEntries.add (fileEntry);
-            DefaultMutableTreeNode directoryNode = new DefaultMutableTreeNode (fileEntry);
-            directoryNode.setAllowsChildren (true);
-            parentNode.add (directoryNode);
-            processDirectoryBlock (fileEntry.keyPtr, fileEntry, directoryNode); // Recursion!!
+            entries.add (fileEntry);
+            PendingDirectory pending = new PendingDirectory (fileEntry);
+            directories.put (fileEntry, pending);
+            unreadDirectories.add (pending);
             break;
 
           case ProdosConstants.SEEDLING:
@@ -166,11 +393,7 @@ public class ProdosDisk extends AbstractFormattedDisk
           case ProdosConstants.TREE:
           case ProdosConstants.PASCAL_ON_PROFILE:
           case ProdosConstants.GSOS_EXTENDED_FILE:
-            fileEntry = new FileEntry (this, entry, localHeader, block);
-            fileEntries.add (fileEntry);
-            DefaultMutableTreeNode node = new DefaultMutableTreeNode (fileEntry);
-            node.setAllowsChildren (false);
-            parentNode.add (node);
+            entries.add (new FileEntry (this, entry, localHeader, block));
             break;
 
           default:
@@ -178,26 +401,34 @@ public class ProdosDisk extends AbstractFormattedDisk
             System.out.println (HexFormatter.format (entry, 0, entry.length));
         }
       }
-      block = Utility.intValue (sectorBuffer[2], sectorBuffer[3]);
+      block = Utility.unsignedShort (sectorBuffer, 2);
     } while (block > 0);
 
-    // link double hi-res files
-    for (AppleFileSource fe : fileEntries)
+    // keep the entries in catalog order, with each directory followed by its contents
+    int position = parent == null ? fileEntries.size () : fileEntries.indexOf (parent) + 1;
+    addFiles (position, entries);
+
+    // link double hi-res files, the partners are always in the same directory
+    for (FileEntry fe : entries)
     {
       String name = fe.getUniqueName ();
       if (name.endsWith (".AUX"))
       {
-        String partner1 = name.substring (0, name.length () - 4);
-        String partner2 = name.substring (0, name.length () - 4) + ".BIN";
-        for (AppleFileSource fe2 : fileEntries)
-          if (fe2.getUniqueName ().equals (partner1)
-              || fe2.getUniqueName ().equals (partner2))
+        String partner1 = getBaseName (name);
+        String partner2 = partner1 + ".BIN";
+        for (AppleFileSource fe2 : getFilesByBaseName (partner1))
+        {
+          String partnerName = fe2.getUniqueName ();
+          if (partnerName.equals (partner1) || partnerName.equals (partner2))
           {
-            ((FileEntry) fe2).link ((FileEntry) fe);
-            ((FileEntry) fe).link ((FileEntry) fe2);
+            ((FileEntry) fe2).link (fe);
+            fe.link ((FileEntry) fe2);
           }
+        }
       }
     }
+
+    return entries;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -211,31 +442,36 @@ public class ProdosDisk extends AbstractFormattedDisk
   public static boolean isCorrectFormat (AppleDisk disk)
   // ---------------------------------------------------------------------------------//
   {
-    disk.setInterleave (1);
-    if (checkFormat (disk))
-      return true;
-    disk.setInterleave (0);
-    return checkFormat (disk);
+    // try each interleave without switching to it, then switch once
+    for (int interleave : new int[] { 1, 0 })
+      if (checkFormat (disk, interleave))
+      {
+        if (disk.getInterleave () != interleave)
+          disk.setInterleave (interleave);
+        return true;
+      }
+    return false;
   }
 
   // ---------------------------------------------------------------------------------//
-  public static boolean checkFormat (AppleDisk disk)
+  public static boolean checkFormat (AppleDisk disk, int interleave)
   // ---------------------------------------------------------------------------------//
   {
-    byte[] buffer = disk.readBlock (2);          // Prodos KEY BLOCK
-    if (debug)
+    ByteBuffer buffer = disk.readBlockView (disk.getDiskAddress (2), interleave);
+    if (debug)                                                 // Prodos KEY BLOCK
     {
-      System.out.println (HexFormatter.format (buffer));
-      System.out.printf ("Entry length   : %02X%n", buffer[0x23]);
-      System.out.printf ("Entry per block: %02X%n", buffer[0x24]);
-      System.out.printf ("Bit map block  : %02X%02X%n", buffer[0x27], buffer[0x28]);
+      System.out.println (HexFormatter.format (Utility.getBytes (buffer, 0, 512)));
+      System.out.printf ("Entry length   : %02X%n", buffer.get (0x23));
+      System.out.printf ("Entry per block: %02X%n", buffer.get (0x24));
+      System.out.printf ("Bit map block  : %02X%02X%n", buffer.get (0x27),
+          buffer.get (0x28));
     }
 
     // check entry length and entries per block
-    if (buffer[0x23] != 0x27 || buffer[0x24] != 0x0D)
+    if (buffer.get (0x23) != 0x27 || buffer.get (0x24) != 0x0D)
       return false;
 
-    int bitMapBlock = Utility.intValue (buffer[0x27], buffer[0x28]);
+    int bitMapBlock = Utility.unsignedShort (buffer, 0x27);
     if (bitMapBlock < 3 || bitMapBlock > 10)
       return false;
 
@@ -249,12 +485,83 @@ public class ProdosDisk extends AbstractFormattedDisk
     return vdh;
   }
 
+  // Reads any unread directories on the file's path. The tree is left alone, so this
+  // can be called from any thread.
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public synchronized AppleFileSource getFile (String uniqueName)
+  // ---------------------------------------------------------------------------------//
+  {
+    boolean loaded;
+    do
+    {
+      loaded = false;
+      for (PendingDirectory pending : new ArrayList<> (directories.values ()))
+        if (pending.contents == null
+            && uniqueName.startsWith (pending.fileEntry.getUniqueName () + "/"))
+        {
+          readDirectory (pending);
+          loaded = true;
+        }
+    } while (loaded);
+
+    return super.getFile (uniqueName);
+  }
+
+  // Adds the nodes of the directories on the file's path to the catalog tree.
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void loadPath (String uniqueName)
+  // ---------------------------------------------------------------------------------//
+  {
+    boolean loaded;
+    do
+    {
+      loaded = false;
+      for (DefaultMutableTreeNode node : new ArrayList<> (unloadedDirectories.keySet ()))
+      {
+        String path = ((FileEntry) node.getUserObject ()).getUniqueName () + "/";
+        if (uniqueName.startsWith (path))
+        {
+          loadDirectory (node);
+          loaded = true;
+        }
+      }
+    } while (loaded);
+  }
+
+  // The background pass sets sector types, so they are read and written under the lock.
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public synchronized SectorType getSectorType (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    return super.getSectorType (da);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public synchronized void setSectorType (int block, SectorType type)
+  // ---------------------------------------------------------------------------------//
+  {
+    super.setSectorType (block, type);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public synchronized boolean stillAvailable (int blockNo)
+  // ---------------------------------------------------------------------------------//
+  {
+    return super.stillAvailable (blockNo);
+  }
+
   // ---------------------------------------------------------------------------------//
   public DataSource getFile (int fileNo)
   // ---------------------------------------------------------------------------------//
   {
     if (fileNo == 0)
       return ((VolumeDirectoryHeader) headerEntries.get (0)).getDataSource ();
+    completeCatalog ();
     return fileEntries.get (fileNo - 1).getDataSource ();
   }
 
@@ -276,7 +583,7 @@ public class ProdosDisk extends AbstractFormattedDisk
       return bootSector;
 
     byte[] buffer = disk.readBlock (da);
-    SectorType type = sectorTypes[da.getBlockNo ()];
+    SectorType type = getSectorType (da);
 
     if (type == catalogSector || type == subcatalogSector)
       return new ProdosCatalogSector (this, disk, buffer, da);
@@ -302,6 +609,7 @@ public class ProdosDisk extends AbstractFormattedDisk
   {
     if (fileNo == 0)
       return ((VolumeDirectoryHeader) headerEntries.get (0)).getSectors ();
+    completeCatalog ();
     return fileEntries.get (fileNo - 1).getSectors ();
   }
 
@@ -359,6 +667,51 @@ public class ProdosDisk extends AbstractFormattedDisk
     return text.toString ();
   }
 
+  // Reads the rest of the catalog one step at a time. The queued job only holds the
+  // disk weakly, so a disk that is closed before its turn is simply skipped.
+  // ---------------------------------------------------------------------------------//
+  private static class CatalogReader implements Runnable
+  // ---------------------------------------------------------------------------------//
+  {
+    final WeakReference<ProdosDisk> diskRef;
+
+    CatalogReader (ProdosDisk disk)
+    {
+      diskRef = new WeakReference<> (disk);
+    }
+
+    @Override
+    public void run ()
+    {
+      while (true)
+      {
+        ProdosDisk disk = diskRef.get ();
+        if (disk == null)                     // no longer in use
+          return;
+
+        if (!disk.readNext ())
+        {
+          disk.catalogRead ();
+          return;
+        }
+      }
+    }
+  }
+
+  // A subdirectory and its entries, which are read the first time they are needed
+  // ---------------------------------------------------------------------------------//
+  private static class PendingDirectory
+  // ---------------------------------------------------------------------------------//
+  {
+    final FileEntry fileEntry;
+    List<FileEntry> contents;                 // null until the directory has been read
+
+    PendingDirectory (FileEntry fileEntry)
+    {
+      this.fileEntry = fileEntry;
+    }
+  }
+
   // ---------------------------------------------------------------------------------//
   class NodeComparator implements Comparator<DefaultMutableTreeNode>
   // ---------------------------------------------------------------------------------//
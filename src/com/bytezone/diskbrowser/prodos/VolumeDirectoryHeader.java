@@ -1,8 +1,9 @@
 package com.bytezone.diskbrowser.prodos;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.List;
 
+import com.bytezone.diskbrowser.disk.ChainWalker;
 import com.bytezone.diskbrowser.disk.DiskAddress;
 import com.bytezone.diskbrowser.gui.DataSource;
 import com.bytezone.diskbrowser.utilities.Utility;
@@ -36,11 +37,13 @@ class VolumeDirectoryHeader extends DirectoryHeader
     totalBitMapBlocks = (totalBlocks - 1) / 512 + 1;
 
     int block = 2;
+    ChainWalker walker = new ChainWalker (disk, null);    // ProdosDisk reports it
     do
     {
-      dataBlocks.add (disk.getDiskAddress (block));
-      byte[] buffer = disk.readBlock (block);
-      block = Utility.unsignedShort (buffer, 2);
+      if (!walker.visit (block))
+        break;
+      dataBlocks.add (block);
+      block = Utility.unsignedShort (disk.readBlockView (block), 2);
     } while (block > 0);
 
     // convert the Free Sector Table
@@ -53,11 +56,11 @@ class VolumeDirectoryHeader extends DirectoryHeader
 
     for (block = bitMapBlock; block <= lastBitMapBlock; block++)
     {
-      byte[] temp = disk.readBlock (block);
+      ByteBuffer temp = disk.readBlockView (block);
       int bytesToCopy = buffer.length - ptr;
-      if (bytesToCopy > temp.length)
-        bytesToCopy = temp.length;
-      System.arraycopy (temp, 0, buffer, ptr, bytesToCopy);
+      if (bytesToCopy > temp.remaining ())
+        bytesToCopy = temp.remaining ();
+      temp.get (buffer, ptr, bytesToCopy);
       ptr += bytesToCopy;
     }
 
@@ -97,20 +100,13 @@ class VolumeDirectoryHeader extends DirectoryHeader
   public DataSource getDataSource ()
   // ---------------------------------------------------------------------------------//
   {
-    List<byte[]> blockList = new ArrayList<> ();
-    int block = 2;
-    do
-    {
-      byte[] buf = disk.readBlock (block);
-      blockList.add (buf);
-      block = Utility.intValue (buf[2], buf[3]); // next block
-    } while (block > 0);
-
-    byte[] fullBuffer = new byte[blockList.size () * 507];
+    byte[] fullBuffer = new byte[dataBlocks.size () * 507];
     int offset = 0;
-    for (byte[] bfr : blockList)
+    for (int i = 0; i < dataBlocks.size (); i++)
     {
-      System.arraycopy (bfr, 4, fullBuffer, offset, 507);
+      ByteBuffer bfr = disk.readBlockView (dataBlocks.get (i));
+      bfr.position (4);
+      bfr.get (fullBuffer, offset, 507);
       offset += 507;
     }
     return new ProdosDirectory (parentDisk, name, fullBuffer, totalBlocks, freeBlocks,
@@ -122,9 +118,7 @@ class VolumeDirectoryHeader extends DirectoryHeader
   public List<DiskAddress> getSectors ()
   // ---------------------------------------------------------------------------------//
   {
-    List<DiskAddress> sectors = new ArrayList<> ();
-    sectors.addAll (dataBlocks);
-    return sectors;
+    return dataBlocks.getDiskAddresses (disk);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -0,0 +1,728 @@
+package com.bytezone.diskbrowser.utilities;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Random access into a gzip file. One pass over the deflate stream records a
+// checkpoint every SPACING bytes of output - the bit position in the compressed data,
+// where the current block started, and the last 32K of output. Any span between two
+// checkpoints can then be inflated on its own. The index can be saved and loaded again,
+// so only the first open of a file pays for the full pass. Output is decoded into a
+// window that holds one span plus the 32K it can refer back to, and is then copied to
+// wherever the caller keeps the image.
+// java.util.zip.Inflater can't be restarted part way through a stream, so this has its
+// own decoder (RFC 1951).
+// -----------------------------------------------------------------------------------//
+public class GzipIndex
+// -----------------------------------------------------------------------------------//
+{
+  private static final int SPACING = 256 * 1024;
+  private static final int WINDOW_SIZE = 32 * 1024;
+  private static final int MAX_MATCH = 258;     // the most a span can overrun its end
+  private static final String INDEX_ID = "DBGZ";
+  private static final int INDEX_VERSION = 1;
+
+  private static final int HEADER = 0;          // decoder states
+  private static final int STORED = 1;
+  private static final int HUFFMAN = 2;
+  private static final int DONE = 3;
+
+  private static final int[] LENGTH_BASE = { 3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17,
+      19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+  private static final int[] LENGTH_EXTRA = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2,
+      2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+  private static final int[] DISTANCE_BASE = { 1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49,
+      65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193,
+      12289, 16385, 24577 };
+  private static final int[] DISTANCE_EXTRA = { 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5,
+      5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+  private static final int[] CODE_LENGTH_ORDER =
+      { 16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+
+  private static final boolean debug = false;
+
+  private static Huffman fixedLiterals;
+  private static Huffman fixedDistances;
+
+  private final ByteBuffer input;
+  private final int size;                       // uncompressed size
+  private final long crc;                       // from the gzip trailer
+  private final List<Checkpoint> checkpoints;
+
+  // ---------------------------------------------------------------------------------//
+  private GzipIndex (ByteBuffer input, List<Checkpoint> checkpoints)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.input = input;
+    this.size = (int) getSize (input);
+    this.crc = getTrailerCrc (input);
+    this.checkpoints = checkpoints;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public static long getSize (ByteBuffer input)
+  // ---------------------------------------------------------------------------------//
+  {
+    return getInt (input, input.limit () - 4);                // ISIZE
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static long getTrailerCrc (ByteBuffer input)
+  // ---------------------------------------------------------------------------------//
+  {
+    return getInt (input, input.limit () - 8);
+  }
+
+  // unsigned little-endian, whatever the buffer's byte order
+  // ---------------------------------------------------------------------------------//
+  private static long getInt (ByteBuffer buffer, int ptr)
+  // ---------------------------------------------------------------------------------//
+  {
+    long value = 0;
+    for (int i = 3; i >= 0; i--)
+      value = (value << 8) | (buffer.get (ptr + i) & 0xFF);
+    return value;
+  }
+
+  // Inflates the whole file into output, which must be getSize () bytes long.
+  // ---------------------------------------------------------------------------------//
+  public static GzipIndex build (ByteBuffer input, ByteBuffer output) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    List<Checkpoint> checkpoints = new ArrayList<> ();
+    int size = output.limit ();
+    CRC32 checksum = new CRC32 ();
+
+    Decoder decoder =
+        new Decoder (input, new byte[WINDOW_SIZE + SPACING + MAX_MATCH], 0, size);
+    decoder.seek (8L * getDataStart (input));
+
+    int next = 0;
+    while (decoder.outPos < size && decoder.state != DONE)
+    {
+      if (decoder.outPos >= next)
+      {
+        checkpoints.add (new Checkpoint (decoder));
+        next = decoder.outPos + SPACING;
+      }
+      int from = decoder.outPos;
+      decoder.inflate (Math.min (next, size));
+      decoder.copyTo (output, from, checksum);
+      decoder.slide ();
+    }
+    int last = decoder.outPos;
+    decoder.finish ();
+    decoder.copyTo (output, last, checksum);
+
+    if (decoder.outPos != size)
+      throw new IOException ("Uncompressed size does not match");
+
+    if (checksum.getValue () != getTrailerCrc (input))
+      throw new IOException ("CRC error");
+
+    // anything after the trailer is another gzip member, which this can't index
+    long end = (decoder.bitPosition () + 7) / 8 + 8;
+    if (end != input.limit ())
+      throw new IOException ("Multiple gzip members");
+
+    return new GzipIndex (input, checkpoints);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public static GzipIndex load (ByteBuffer input, Path path)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!Files.exists (path))
+      return null;
+
+    try (DataInputStream in = new DataInputStream (
+        new InflaterInputStream (Files.newInputStream (path))))
+    {
+      if (!INDEX_ID.equals (in.readUTF ()) || in.readInt () != INDEX_VERSION)
+        return null;
+
+      // the index belongs to a different version of the file
+      if (in.readInt () != input.limit () || in.readLong () != getTrailerCrc (input)
+          || in.readInt () != (int) getSize (input))
+        return null;
+
+      int total = in.readInt ();
+      List<Checkpoint> checkpoints = new ArrayList<> (total);
+      for (int i = 0; i < total; i++)
+        checkpoints.add (new Checkpoint (in));
+
+      return new GzipIndex (input, checkpoints);
+    }
+    catch (IOException e)
+    {
+      if (debug)
+        System.out.println ("Invalid gzip index : " + path);
+      return null;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public void save (Path path) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    Files.createDirectories (path.getParent ());
+
+    try (DataOutputStream out = new DataOutputStream (
+        new DeflaterOutputStream (Files.newOutputStream (path))))
+    {
+      out.writeUTF (INDEX_ID);
+      out.writeInt (INDEX_VERSION);
+      out.writeInt (input.limit ());
+      out.writeLong (crc);
+      out.writeInt (size);
+      out.writeInt (checkpoints.size ());
+      for (Checkpoint checkpoint : checkpoints)
+        checkpoint.write (out);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getSize ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return size;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getTotalSpans ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return checkpoints.size ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getSpan (int offset)
+  // ---------------------------------------------------------------------------------//
+  {
+    int lo = 0;
+    int hi = checkpoints.size () - 1;
+
+    while (lo < hi)
+    {
+      int mid = (lo + hi + 1) >>> 1;
+      if (checkpoints.get (mid).outPos <= offset)
+        lo = mid;
+      else
+        hi = mid - 1;
+    }
+
+    return lo;
+  }
+
+  // Inflates one span into its place in output, which must be getSize () bytes long.
+  // ---------------------------------------------------------------------------------//
+  public void inflate (int span, ByteBuffer output) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    Checkpoint checkpoint = checkpoints.get (span);
+    int end = span + 1 < checkpoints.size () ? checkpoints.get (span + 1).outPos : size;
+    int start = checkpoint.outPos - checkpoint.window.length;
+
+    byte[] window = new byte[end - start + MAX_MATCH];
+    Decoder decoder = new Decoder (input, window, start, size);
+    checkpoint.restore (decoder);
+    decoder.inflate (end);
+
+    if (decoder.outPos < end)
+      throw new IOException ("Span " + span + " ended early");
+
+    ByteBuffer view = output.duplicate ();
+    view.position (checkpoint.outPos);
+    view.put (window, checkpoint.outPos - start, end - checkpoint.outPos);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static int getDataStart (ByteBuffer input) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    if (input.limit () < 18 || (input.get (0) & 0xFF) != 0x1F
+        || (input.get (1) & 0xFF) != 0x8B || input.get (2) != 8)
+      throw new IOException ("Not a gzip file");
+
+    int flags = input.get (3) & 0xFF;
+    int ptr = 10;
+
+    if ((flags & 0x04) != 0)                        // FEXTRA
+      ptr += 2 + ((input.get (ptr) & 0xFF) | (input.get (ptr + 1) & 0xFF) << 8);
+    if ((flags & 0x08) != 0)                        // FNAME
+      while (input.get (ptr++) != 0)
+        ;
+    if ((flags & 0x10) != 0)                        // FCOMMENT
+      while (input.get (ptr++) != 0)
+        ;
+    if ((flags & 0x02) != 0)                        // FHCRC
+      ptr += 2;
+
+    return ptr;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static synchronized void buildFixedTables ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (fixedLiterals != null)
+      return;
+
+    int[] lengths = new int[288];
+    Arrays.fill (lengths, 0, 144, 8);
+    Arrays.fill (lengths, 144, 256, 9);
+    Arrays.fill (lengths, 256, 280, 7);
+    Arrays.fill (lengths, 280, 288, 8);
+    fixedLiterals = new Huffman (lengths, 288);
+
+    Arrays.fill (lengths, 0, 30, 5);
+    fixedDistances = new Huffman (lengths, 30);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static class Checkpoint
+  // ---------------------------------------------------------------------------------//
+  {
+    final int outPos;
+    final long bitPos;
+    final long headerBit;
+    final int state;
+    final boolean lastBlock;
+    final int storedRemaining;
+    final byte[] window;
+
+    // -------------------------------------------------------------------------------//
+    Checkpoint (Decoder decoder)
+    // -------------------------------------------------------------------------------//
+    {
+      outPos = decoder.outPos;
+      bitPos = decoder.bitPosition ();
+      headerBit = decoder.headerBit;
+      state = decoder.state;
+      lastBlock = decoder.lastBlock;
+      storedRemaining = decoder.storedRemaining;
+
+      int from = Math.max (0, outPos - WINDOW_SIZE);
+      window = Arrays.copyOfRange (decoder.out, from - decoder.base,
+          outPos - decoder.base);
+    }
+
+    // -------------------------------------------------------------------------------//
+    Checkpoint (DataInputStream in) throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      outPos = in.readInt ();
+      bitPos = in.readLong ();
+      headerBit = in.readLong ();
+      state = in.readByte ();
+      lastBlock = in.readBoolean ();
+      storedRemaining = in.readInt ();
+      window = new byte[in.readInt ()];
+      in.readFully (window);
+    }
+
+    // -------------------------------------------------------------------------------//
+    void write (DataOutputStream out) throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      out.writeInt (outPos);
+      out.writeLong (bitPos);
+      out.writeLong (headerBit);
+      out.writeByte (state);
+      out.writeBoolean (lastBlock);
+      out.writeInt (storedRemaining);
+      out.writeInt (window.length);
+      out.write (window);
+    }
+
+    // -------------------------------------------------------------------------------//
+    void restore (Decoder decoder) throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      System.arraycopy (window, 0, decoder.out, outPos - window.length - decoder.base,
+          window.length);
+      decoder.outPos = outPos;
+
+      if (state == HUFFMAN)               // rebuild the block's code tables
+      {
+        decoder.seek (headerBit);
+        decoder.readBlockHeader ();
+      }
+
+      decoder.seek (bitPos);
+      decoder.state = state;
+      decoder.lastBlock = lastBlock;
+      decoder.headerBit = headerBit;
+      decoder.storedRemaining = storedRemaining;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static class Decoder
+  // ---------------------------------------------------------------------------------//
+  {
+    final ByteBuffer in;
+    final byte[] out;                     // the output from base onwards
+    int base;
+    final int size;                       // of the whole output
+    int inPos;
+    long bitBuffer;
+    int bitCount;
+    int outPos;
+
+    int state = HEADER;
+    boolean lastBlock;
+    long headerBit;
+    int storedRemaining;
+    Huffman literals;
+    Huffman distances;
+
+    // -------------------------------------------------------------------------------//
+    Decoder (ByteBuffer in, byte[] out, int base, int size)
+    // -------------------------------------------------------------------------------//
+    {
+      this.in = in;
+      this.out = out;
+      this.base = base;
+      this.size = size;
+    }
+
+    // -------------------------------------------------------------------------------//
+    long bitPosition ()
+    // -------------------------------------------------------------------------------//
+    {
+      return (long) inPos * 8 - bitCount;
+    }
+
+    // -------------------------------------------------------------------------------//
+    void seek (long bit) throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      inPos = (int) (bit >>> 3);
+      bitBuffer = 0;
+      bitCount = 0;
+      if ((bit & 7) != 0)
+        getBits ((int) (bit & 7));
+    }
+
+    // -------------------------------------------------------------------------------//
+    private void fill ()
+    // -------------------------------------------------------------------------------//
+    {
+      while (bitCount <= 56 && inPos < in.limit ())
+      {
+        bitBuffer |= (long) (in.get (inPos++) & 0xFF) << bitCount;
+        bitCount += 8;
+      }
+    }
+
+    // -------------------------------------------------------------------------------//
+    int getBits (int n) throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      if (bitCount < n)
+      {
+        fill ();
+        if (bitCount < n)
+          throw new IOException ("Unexpected end of compressed data");
+      }
+
+      int value = (int) (bitBuffer & ((1L << n) - 1));
+      bitBuffer >>>= n;
+      bitCount -= n;
+
+      return value;
+    }
+
+    // -------------------------------------------------------------------------------//
+    int decode (Huffman huffman) throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      if (bitCount < Huffman.MAX_BITS)
+        fill ();
+
+      int entry = huffman.fast[(int) (bitBuffer & Huffman.FAST_MASK)];
+      int length = entry & 0x0F;
+      if (length > 0 && length <= bitCount)
+      {
+        bitBuffer >>>= length;
+        bitCount -= length;
+        return entry >>> 4;
+      }
+
+      // longer code - walk the canonical code one bit at a time
+      int code = 0;
+      int first = 0;
+      int index = 0;
+      for (int len = 1; len <= Huffman.MAX_BITS; len++)
+      {
+        code |= getBits (1);
+        int count = huffman.count[len];
+        if (code - count < first)
+          return huffman.symbol[index + (code - first)];
+        index += count;
+        first = (first + count) << 1;
+        code <<= 1;
+      }
+
+      throw new IOException ("Invalid Huffman code");
+    }
+
+    // -------------------------------------------------------------------------------//
+    void readBlockHeader () throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      headerBit = bitPosition ();
+      lastBlock = getBits (1) == 1;
+
+      switch (getBits (2))
+      {
+        case 0:
+          getBits (bitCount & 7);                 // skip to a byte boundary
+          int length = getBits (16);
+          if ((length ^ 0xFFFF) != getBits (16))
+            throw new IOException ("Invalid stored block length");
+          storedRemaining = length;
+          state = STORED;
+          break;
+
+        case 1:
+          buildFixedTables ();
+          literals = fixedLiterals;
+          distances = fixedDistances;
+          state = HUFFMAN;
+          break;
+
+        case 2:
+          readDynamicTables ();
+          state = HUFFMAN;
+          break;
+
+        default:
+          throw new IOException ("Invalid block type");
+      }
+    }
+
+    // -------------------------------------------------------------------------------//
+    private void readDynamicTables () throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      int totalLiterals = getBits (5) + 257;
+      int totalDistances = getBits (5) + 1;
+      int totalCodes = getBits (4) + 4;
+
+      int[] lengths = new int[320];
+      for (int i = 0; i < totalCodes; i++)
+        lengths[CODE_LENGTH_ORDER[i]] = getBits (3);
+      Huffman codeLengths = new Huffman (lengths, 19);
+
+      Arrays.fill (lengths, 0);
+      int ptr = 0;
+      while (ptr < totalLiterals + totalDistances)
+      {
+        int symbol = decode (codeLengths);
+        if (symbol < 16)
+        {
+          lengths[ptr++] = symbol;
+          continue;
+        }
+
+        int value = 0;
+        int repeat;
+        if (symbol == 16)
+        {
+          if (ptr == 0)
+            throw new IOException ("Repeat with no previous length");
+          value = lengths[ptr - 1];
+          repeat = 3 + getBits (2);
+        }
+        else if (symbol == 17)
+          repeat = 3 + getBits (3);
+        else
+          repeat = 11 + getBits (7);
+
+        if (ptr + repeat > totalLiterals + totalDistances)
+          throw new IOException ("Too many code lengths");
+        while (repeat-- > 0)
+          lengths[ptr++] = value;
+      }
+
+      literals = new Huffman (lengths, totalLiterals);
+      distances =
+          new Huffman (Arrays.copyOfRange (lengths, totalLiterals, ptr), totalDistances);
+    }
+
+    // Stops at the first symbol boundary at or after end.
+    // -------------------------------------------------------------------------------//
+    void inflate (int end) throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      while (outPos < end && state != DONE)
+        step ();
+    }
+
+    // Reads whatever follows the last byte of output, normally the end of the block.
+    // -------------------------------------------------------------------------------//
+    void finish () throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      while (state != DONE)
+        step ();
+    }
+
+    // -------------------------------------------------------------------------------//
+    private void step () throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      switch (state)
+      {
+        case HEADER:
+          readBlockHeader ();
+          break;
+
+        case STORED:
+          if (storedRemaining == 0)
+          {
+            state = lastBlock ? DONE : HEADER;
+            break;
+          }
+          checkSpace (1);
+          out[outPos++ - base] = (byte) getBits (8);
+          storedRemaining--;
+          break;
+
+        case HUFFMAN:
+          int symbol = decode (literals);
+          if (symbol < 256)
+          {
+            checkSpace (1);
+            out[outPos++ - base] = (byte) symbol;
+          }
+          else if (symbol == 256)
+            state = lastBlock ? DONE : HEADER;
+          else
+            copyMatch (symbol - 257);
+          break;
+      }
+    }
+
+    // -------------------------------------------------------------------------------//
+    private void copyMatch (int lengthCode) throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      if (lengthCode >= LENGTH_BASE.length)
+        throw new IOException ("Invalid length code");
+      int length = LENGTH_BASE[lengthCode] + getBits (LENGTH_EXTRA[lengthCode]);
+
+      int distanceCode = decode (distances);
+      if (distanceCode >= DISTANCE_BASE.length)
+        throw new IOException ("Invalid distance code");
+      int distance = DISTANCE_BASE[distanceCode] + getBits (DISTANCE_EXTRA[distanceCode]);
+
+      if (distance > outPos - base)
+        throw new IOException ("Distance too far back");
+      checkSpace (length);
+
+      int from = outPos - base - distance;
+      int to = outPos - base;
+      if (distance >= length)
+        System.arraycopy (out, from, out, to, length);
+      else
+        for (int i = 0; i < length; i++)          // overlapping copy
+          out[to + i] = out[from + i];
+      outPos += length;
+    }
+
+    // -------------------------------------------------------------------------------//
+    private void checkSpace (int length) throws IOException
+    // -------------------------------------------------------------------------------//
+    {
+      if (outPos + length > size || outPos - base + length > out.length)
+        throw new IOException ("Output overflow");
+    }
+
+    // Copies the output from position from up to outPos to the image.
+    // -------------------------------------------------------------------------------//
+    void copyTo (ByteBuffer output, int from, CRC32 checksum)
+    // -------------------------------------------------------------------------------//
+    {
+      ByteBuffer view = output.duplicate ();
+      view.position (from);
+      view.put (out, from - base, outPos - from);
+      checksum.update (out, from - base, outPos - from);
+    }
+
+    // Keeps only the last 32K of output, which is all that later matches can use.
+    // -------------------------------------------------------------------------------//
+    void slide ()
+    // -------------------------------------------------------------------------------//
+    {
+      int keep = Math.min (WINDOW_SIZE, outPos - base);
+      System.arraycopy (out, outPos - base - keep, out, 0, keep);
+      base = outPos - keep;
+    }
+  }
+
+  // Canonical Huffman code. Codes up to FAST_BITS long are decoded with one table
+  // lookup, anything longer falls back to counting through the code lengths.
+  // ---------------------------------------------------------------------------------//
+  private static class Huffman
+  // ---------------------------------------------------------------------------------//
+  {
+    static final int MAX_BITS = 15;
+    static final int FAST_BITS = 10;
+    static final int FAST_MASK = (1 << FAST_BITS) - 1;
+
+    final int[] count = new int[MAX_BITS + 1];
+    final int[] symbol;
+    final int[] fast = new int[1 << FAST_BITS];   // symbol << 4 | length
+
+    // -------------------------------------------------------------------------------//
+    Huffman (int[] lengths, int total)
+    // -------------------------------------------------------------------------------//
+    {
+      symbol = new int[total];
+
+      for (int i = 0; i < total; i++)
+        count[lengths[i]]++;
+      count[0] = 0;
+
+      int[] offsets = new int[MAX_BITS + 2];
+      for (int len = 1; len <= MAX_BITS; len++)
+        offsets[len + 1] = offsets[len] + count[len];
+
+      for (int i = 0; i < total; i++)
+        if (lengths[i] != 0)
+          symbol[offsets[lengths[i]]++] = i;
+
+      // assign the canonical codes and fill the lookup table
+      int code = 0;
+      int index = 0;
+      for (int len = 1; len <= MAX_BITS; len++)
+      {
+        for (int i = 0; i < count[len]; i++)
+        {
+          if (len <= FAST_BITS)
+          {
+            int reversed = Integer.reverse (code) >>> (32 - len);
+            for (int j = reversed; j < fast.length; j += 1 << len)
+              fast[j] = symbol[index] << 4 | len;
+          }
+          code++;
+          index++;
+        }
+        code <<= 1;
+      }
+    }
+  }
+}
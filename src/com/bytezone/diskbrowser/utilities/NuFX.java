@@ -38,6 +38,14 @@ public class NuFX
     readBuffer ();
   }
 
+  // ---------------------------------------------------------------------------------//
+  public NuFX (byte[] buffer) throws FileFormatException
+  // ---------------------------------------------------------------------------------//
+  {
+    this.buffer = buffer;
+    readBuffer ();
+  }
+
   // ---------------------------------------------------------------------------------//
   private void readBuffer ()
   // ---------------------------------------------------------------------------------//
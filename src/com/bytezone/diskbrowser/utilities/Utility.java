@@ -6,6 +6,7 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -117,6 +118,28 @@ public class Utility
     return (buffer[ptr] & 0xFF) | ((buffer[ptr + 1] & 0xFF) << 8);
   }
 
+  // ---------------------------------------------------------------------------------//
+  public static int unsignedShort (ByteBuffer buffer, int ptr)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (ptr >= buffer.limit ())
+    {
+      System.out.println ("Index out of range (unsigned short): " + ptr);
+      return 0;
+    }
+    return (buffer.get (ptr) & 0xFF) | ((buffer.get (ptr + 1) & 0xFF) << 8);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public static byte[] getBytes (ByteBuffer buffer, int ptr, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++)
+      bytes[i] = buffer.get (ptr + i);
+    return bytes;
+  }
+
   // ---------------------------------------------------------------------------------//
   public static int signedShort (byte[] buffer, int ptr)
   // ---------------------------------------------------------------------------------//
@@ -189,6 +212,20 @@ public class Utility
     return true;
   }
 
+  // ---------------------------------------------------------------------------------//
+  public static boolean matches (ByteBuffer buffer, int offset, byte[] key)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (offset + key.length > buffer.limit ())
+      return false;
+
+    for (int i = 0; i < key.length; i++)
+      if (buffer.get (offset + i) != key[i])
+        return false;
+
+    return true;
+  }
+
   // ---------------------------------------------------------------------------------//
   public static LocalDateTime getDateTime (byte[] buffer, int ptr)
   // ---------------------------------------------------------------------------------//